@@ -0,0 +1,185 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.agent;
+
+import net.nicoulaj.compilecommand.CompileCommandLauncher;
+import net.nicoulaj.compilecommand.CompilerDirectives;
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Java agent that collects the <code>hotspot_compiler</code> files on the classpath and installs them as compiler
+ * directives through the <code>DiagnosticCommand</code> MBean, for when <code>-XX:CompileCommandFile</code> can not
+ * be passed to the JVM. Compiler directives require JDK 9+.
+ * <p>Usage: <code>-javaagent:compile-command-annotations-agent.jar[=path=META-INF/hotspot_compiler,verbose,jmx]</code>,
+ * or attached at runtime, in which case methods already compiled keep their code until they are recompiled. With
+ * <code>jmx</code>, the directives are installed through a {@link CompilerDirectivesControl} MBean, which can then
+ * replace them without restarting the JVM.</p>
+ * <p>When files were written for several JDK releases (<code>compile.command.releases</code> processor option), the
+ * file of the newest release not newer than the running JVM is used, and the file of the deployment profile set with
+ * <code>-Dcompile.command.profile</code> if there is one, see {@link CompileCommandLauncher}.</p>
+ */
+public final class CompileCommandAgent {
+
+    static final String DIAGNOSTIC_COMMAND_MBEAN = "com.sun.management:type=DiagnosticCommand";
+
+    private static final String DEFAULT_PATH = "META-INF/hotspot_compiler";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CompileCommandAgent() {
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        run(args);
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) {
+        run(args);
+    }
+
+    private static void run(String args) {
+        String path = DEFAULT_PATH;
+        boolean verbose = false;
+        boolean jmx = false;
+        if (args != null)
+            for (String arg : args.split(","))
+                if (arg.startsWith("path="))
+                    path = arg.substring("path=".length());
+                else if ("verbose".equals(arg))
+                    verbose = true;
+                else if ("jmx".equals(arg))
+                    jmx = true;
+
+        try {
+            if (verbose)
+                log("Collecting " + path);
+
+            if (jmx) {
+                final CompilerDirectivesControl control = new CompilerDirectivesControl(ClassLoader.getSystemClassLoader(), path);
+                control.register();
+                final String output = control.reload();
+                if (verbose) {
+                    for (String line : control.getSkippedLines())
+                        log("Skipped line without compiler directive equivalent: " + line);
+                    log(output.trim());
+                }
+                return;
+            }
+
+            final CompilerDirectives directives = collect(ClassLoader.getSystemClassLoader(), path);
+            if (verbose)
+                for (String line : directives.getSkipped())
+                    log("Skipped line without compiler directive equivalent: " + line);
+            if (directives.isEmpty()) {
+                if (verbose)
+                    log("No compiler command found at " + path);
+                return;
+            }
+            final String output = install(directives);
+            if (verbose || !output.contains("added"))
+                log(output.trim());
+        } catch (Exception e) {
+            log("Failed installing compiler directives: " + e);
+        }
+    }
+
+    /**
+     * Collect and translate all the <code>hotspot_compiler</code> files visible from a class loader.
+     *
+     * @param loader the class loader.
+     * @param path   the path of the <code>hotspot_compiler</code> files.
+     * @return the translated directives.
+     * @throws IOException if a file could not be read.
+     */
+    static CompilerDirectives collect(ClassLoader loader, String path) throws IOException {
+        final CompilerDirectives directives = new CompilerDirectives();
+        for (String line : collectLines(loader, path))
+            directives.add(line);
+        return directives;
+    }
+
+    /**
+     * Collect the lines of all the <code>hotspot_compiler</code> files visible from a class loader, using the file of
+     * the profile and of the running JDK release in every classpath root, see {@link CompileCommandLauncher#getResources}.
+     *
+     * @param loader the class loader.
+     * @param path   the path of the <code>hotspot_compiler</code> files.
+     * @return the lines, without <code>quiet</code>.
+     * @throws IOException if a file could not be read.
+     */
+    static SortedSet<String> collectLines(ClassLoader loader, String path) throws IOException {
+        final SortedSet<String> lines = new TreeSet<String>();
+        for (URL url : CompileCommandLauncher.getResources(loader, path,
+                                                           System.getProperty(CompileCommandLauncher.PROFILE_PROPERTY),
+                                                           CompileCommandLauncher.getRuntimeRelease())) {
+            final InputStream in = url.openStream();
+            try {
+                IncrementalCompilationHelper.readLines(new BufferedReader(new InputStreamReader(in, UTF_8)), lines);
+            } finally {
+                in.close();
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Install directives on the running JVM, on top of the directives stack.
+     *
+     * @param directives the directives.
+     * @return the output of the <code>Compiler.directives_add</code> diagnostic command.
+     * @throws JMException if the diagnostic command failed, for example before JDK 9.
+     * @throws IOException if the directives file could not be written.
+     */
+    static String install(CompilerDirectives directives) throws JMException, IOException {
+        final File file = File.createTempFile("compiler-directives", ".json");
+        try {
+            Files.write(file.toPath(), directives.toJson().getBytes(UTF_8));
+            return invoke("compilerDirectivesAdd", file.getAbsolutePath());
+        } finally {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    static String invoke(String operation, String... args) throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        return String.valueOf(server.invoke(new ObjectName(DIAGNOSTIC_COMMAND_MBEAN),
+                                            operation,
+                                            new Object[]{args},
+                                            new String[]{String[].class.getName()}));
+    }
+
+    private static void log(String message) {
+        System.err.println("[compile-command-agent] " + message);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.agent;
+
+import net.nicoulaj.compilecommand.CompilerDirectives;
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Installs <code>hotspot_compiler</code> lines as compiler directives at runtime, and replaces them when they change.
+ * <p>The directives of the JVM are a stack and <code>Compiler.directives_remove</code> only pops its top, so
+ * changing the installed lines pops the directives installed last by this class, then pushes the directives of the
+ * new lines. Directives pushed by other means after them would be popped instead: only use
+ * <code>jcmd Compiler.directives_add</code> next to this class if the directives it adds are not meant to be
+ * kept. Methods already compiled keep their code until they are recompiled.</p>
+ */
+public final class CompilerDirectivesControl implements CompilerDirectivesControlMBean {
+
+    static final String OBJECT_NAME = "net.nicoulaj.compilecommand:type=CompilerDirectivesControl";
+
+    private static final Pattern ADDED = Pattern.compile("(\\d+) compiler directives added");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ClassLoader loader;
+
+    private final String path;
+
+    private SortedSet<String> installed = new TreeSet<String>();
+
+    private int installedDirectives;
+
+    private List<String> skipped = Collections.emptyList();
+
+    private long reloads;
+
+    private long unchangedReloads;
+
+    private long failures;
+
+    private long addedLines;
+
+    private long removedLines;
+
+    /**
+     * @param loader the class loader to collect the <code>hotspot_compiler</code> files from on {@link #reload()}.
+     * @param path   the path of the <code>hotspot_compiler</code> files.
+     */
+    public CompilerDirectivesControl(ClassLoader loader, String path) {
+        this.loader = loader;
+        this.path = path;
+    }
+
+    /**
+     * Register the MBean on the platform MBean server.
+     *
+     * @throws JMException if the MBean could not be registered.
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public synchronized String reload() throws JMException, IOException {
+        try {
+            return apply(CompileCommandAgent.collectLines(loader, path));
+        } catch (IOException e) {
+            failures++;
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized String loadFile(String path) throws JMException, IOException {
+        final SortedSet<String> lines = new TreeSet<String>();
+        try {
+            final File file = new File(path);
+            final File[] files = file.isDirectory() ? file.listFiles() : new File[]{file};
+            if (files == null || !file.exists())
+                throw new IOException("No such file or directory: " + path);
+            for (File f : files) {
+                if (!f.isFile())
+                    continue;
+                final InputStream in = new FileInputStream(f);
+                try {
+                    IncrementalCompilationHelper.readLines(new BufferedReader(new InputStreamReader(in, UTF_8)), lines);
+                } finally {
+                    in.close();
+                }
+            }
+        } catch (IOException e) {
+            failures++;
+            throw e;
+        }
+        return apply(lines);
+    }
+
+    @Override
+    public String load(String content) throws JMException, IOException {
+        final SortedSet<String> lines = new TreeSet<String>();
+        IncrementalCompilationHelper.readLines(new BufferedReader(new StringReader(content)), lines);
+        return apply(lines);
+    }
+
+    /**
+     * Replace the installed lines, if they changed.
+     *
+     * @param lines the new lines, without <code>quiet</code>.
+     * @return a summary of the changes and the output of the diagnostic commands.
+     * @throws JMException if a diagnostic command failed.
+     * @throws IOException if the directives file could not be written.
+     */
+    synchronized String apply(SortedSet<String> lines) throws JMException, IOException {
+        final SortedSet<String> added = new TreeSet<String>(lines);
+        added.removeAll(installed);
+        final SortedSet<String> removed = new TreeSet<String>(installed);
+        removed.removeAll(lines);
+        if (added.isEmpty() && removed.isEmpty()) {
+            unchangedReloads++;
+            return "Unchanged, " + installed.size() + " lines installed";
+        }
+
+        final CompilerDirectives directives = new CompilerDirectives();
+        for (String line : lines)
+            directives.add(line);
+
+        try {
+            final StringBuilder output = new StringBuilder();
+            output.append(remove());
+            installed = new TreeSet<String>();
+            if (!directives.isEmpty()) {
+                final String result = CompileCommandAgent.install(directives);
+                output.append(result);
+                final Matcher matcher = ADDED.matcher(result);
+                installedDirectives = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+                if (installedDirectives == 0)
+                    throw new JMException("Failed installing compiler directives: " + result.trim());
+            }
+            installed = new TreeSet<String>(lines);
+            skipped = directives.getSkipped();
+            reloads++;
+            addedLines += added.size();
+            removedLines += removed.size();
+            return "Added " + added.size() + " lines, removed " + removed.size() + " lines\n" + output;
+        } catch (JMException e) {
+            failures++;
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized String remove() throws JMException {
+        final StringBuilder output = new StringBuilder();
+        try {
+            for (; installedDirectives > 0; installedDirectives--)
+                output.append(CompileCommandAgent.invoke("compilerDirectivesRemove"));
+        } catch (JMException e) {
+            failures++;
+            throw e;
+        }
+        installed = new TreeSet<String>();
+        return output.toString();
+    }
+
+    @Override
+    public synchronized String clear() throws JMException {
+        try {
+            final String output = CompileCommandAgent.invoke("compilerDirectivesClear");
+            installed = new TreeSet<String>();
+            installedDirectives = 0;
+            return output;
+        } catch (JMException e) {
+            failures++;
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized String[] getInstalledLines() {
+        return installed.toArray(new String[installed.size()]);
+    }
+
+    @Override
+    public synchronized int getInstalledDirectiveCount() {
+        return installedDirectives;
+    }
+
+    @Override
+    public synchronized long getReloadCount() {
+        return reloads;
+    }
+
+    @Override
+    public synchronized long getUnchangedReloadCount() {
+        return unchangedReloads;
+    }
+
+    @Override
+    public synchronized long getFailureCount() {
+        return failures;
+    }
+
+    @Override
+    public synchronized long getAddedLineCount() {
+        return addedLines;
+    }
+
+    @Override
+    public synchronized long getRemovedLineCount() {
+        return removedLines;
+    }
+
+    @Override
+    public synchronized String[] getSkippedLines() {
+        return skipped.toArray(new String[skipped.size()]);
+    }
+}
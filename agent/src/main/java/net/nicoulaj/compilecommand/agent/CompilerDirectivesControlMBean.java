@@ -0,0 +1,113 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.agent;
+
+import javax.management.JMException;
+import java.io.IOException;
+
+/**
+ * Management interface of {@link CompilerDirectivesControl}, registered as
+ * <code>net.nicoulaj.compilecommand:type=CompilerDirectivesControl</code>.
+ */
+public interface CompilerDirectivesControlMBean {
+
+    /**
+     * Collect the <code>hotspot_compiler</code> files on the classpath again and install them if they changed.
+     *
+     * @return a summary of the changes and the output of the diagnostic commands.
+     * @throws JMException if a diagnostic command failed.
+     * @throws IOException if a file could not be read.
+     */
+    String reload() throws JMException, IOException;
+
+    /**
+     * Replace the installed lines by the lines of a <code>hotspot_compiler</code> file, or of all the files of a
+     * fragment directory.
+     *
+     * @param path the path of the file or fragment directory.
+     * @return a summary of the changes and the output of the diagnostic commands.
+     * @throws JMException if a diagnostic command failed.
+     * @throws IOException if a file could not be read.
+     */
+    String loadFile(String path) throws JMException, IOException;
+
+    /**
+     * Replace the installed lines.
+     *
+     * @param content the lines, in the <code>hotspot_compiler</code> format.
+     * @return a summary of the changes and the output of the diagnostic commands.
+     * @throws JMException if a diagnostic command failed.
+     * @throws IOException if the directives file could not be written.
+     */
+    String load(String content) throws JMException, IOException;
+
+    /**
+     * Remove the directives installed through this MBean or by the agent, leaving the others in place.
+     *
+     * @return the output of the diagnostic commands.
+     * @throws JMException if a diagnostic command failed.
+     */
+    String remove() throws JMException;
+
+    /**
+     * Remove all the compiler directives of the JVM, including the ones that were not installed by the agent.
+     *
+     * @return the output of the diagnostic command.
+     * @throws JMException if the diagnostic command failed.
+     */
+    String clear() throws JMException;
+
+    /**
+     * @return the installed <code>hotspot_compiler</code> lines.
+     */
+    String[] getInstalledLines();
+
+    /**
+     * @return the number of compiler directives installed.
+     */
+    int getInstalledDirectiveCount();
+
+    /**
+     * @return the number of loads that changed the installed lines.
+     */
+    long getReloadCount();
+
+    /**
+     * @return the number of loads that did not change the installed lines.
+     */
+    long getUnchangedReloadCount();
+
+    /**
+     * @return the number of operations that failed.
+     */
+    long getFailureCount();
+
+    /**
+     * @return the total number of lines added by loads.
+     */
+    long getAddedLineCount();
+
+    /**
+     * @return the total number of lines removed by loads.
+     */
+    long getRemovedLineCount();
+
+    /**
+     * @return the lines skipped by the last load, as they have no compiler directive equivalent.
+     */
+    String[] getSkippedLines();
+}
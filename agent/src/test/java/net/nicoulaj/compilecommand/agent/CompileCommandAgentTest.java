@@ -0,0 +1,82 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.agent;
+
+import net.nicoulaj.compilecommand.CompilerDirectives;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompileCommandAgent}.
+ */
+public class CompileCommandAgentTest {
+
+    @Test
+    public void testCollect() throws IOException
+    {
+        final CompilerDirectives directives = collect();
+        assertEquals(directives.size(), 2);
+        assertEquals(directives.getSkipped().size(), 0);
+    }
+
+    @Test
+    public void testInstall() throws Exception
+    {
+        final CompilerDirectives directives = collect();
+        final String added;
+        try {
+            added = CompileCommandAgent.install(directives);
+        } catch (JMException e) {
+            throw new SkipException("Compiler directives are not supported by this JVM", e);
+        }
+        try {
+            assertTrue(added.contains("2 compiler directives added"), added);
+            final String printed = CompileCommandAgent.invoke("compilerDirectivesPrint");
+            assertTrue(printed.contains("net/nicoulaj/compilecommand/agent/A.b()V"), printed);
+        } finally {
+            CompileCommandAgent.invoke("compilerDirectivesRemove");
+            CompileCommandAgent.invoke("compilerDirectivesRemove");
+        }
+    }
+
+    private static CompilerDirectives collect() throws IOException
+    {
+        final File first = new File("target/test-agent/" + System.nanoTime());
+        final File second = new File("target/test-agent/" + System.nanoTime());
+        writeStringToFile(new File(first, "META-INF/hotspot_compiler"),
+                          "quiet\ninline net.nicoulaj.compilecommand.agent.A::a ()V\n", "UTF-8");
+        writeStringToFile(new File(second, "META-INF/hotspot_compiler"),
+                          "quiet\nexclude net.nicoulaj.compilecommand.agent.A::b ()V\n", "UTF-8");
+
+        final URLClassLoader loader = new URLClassLoader(new URL[]{first.toURI().toURL(), second.toURI().toURL()}, null);
+        try {
+            return CompileCommandAgent.collect(loader, "META-INF/hotspot_compiler");
+        } finally {
+            loader.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.agent;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompilerDirectivesControl}.
+ */
+public class CompilerDirectivesControlTest {
+
+    private static final String A = "net.nicoulaj.compilecommand.agent.A";
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        final CompilerDirectivesControl control = new CompilerDirectivesControl(getClass().getClassLoader(), "META-INF/hotspot_compiler");
+        try {
+            load(control, "quiet\ninline " + A + "::a ()V\n");
+            assertEquals(control.getInstalledDirectiveCount(), 1);
+            assertEquals(asList(control.getInstalledLines()), asList("inline " + A + "::a ()V"));
+            assertPrinted("+net/nicoulaj/compilecommand/agent/A.a()V");
+
+            assertTrue(control.load("inline " + A + "::a ()V").startsWith("Unchanged"));
+            assertEquals(control.getUnchangedReloadCount(), 1L);
+
+            control.load("inline " + A + "::a ()V\nexclude " + A + "::b ()V\n");
+            assertEquals(control.getInstalledDirectiveCount(), 2);
+            assertEquals(control.getReloadCount(), 2L);
+            assertEquals(control.getAddedLineCount(), 2L);
+            assertEquals(control.getRemovedLineCount(), 0L);
+            assertPrinted("net/nicoulaj/compilecommand/agent/A.b()V");
+
+            control.load("exclude " + A + "::b ()V");
+            assertEquals(control.getInstalledDirectiveCount(), 1);
+            assertEquals(control.getRemovedLineCount(), 1L);
+
+            control.load("");
+            assertEquals(control.getInstalledDirectiveCount(), 0);
+            assertEquals(control.getInstalledLines().length, 0);
+            assertEquals(control.getFailureCount(), 0L);
+        } finally {
+            control.remove();
+        }
+    }
+
+    @Test
+    public void testLoadFile() throws Exception
+    {
+        final File fragments = new File("target/test-agent/" + System.nanoTime());
+        writeStringToFile(new File(fragments, "method-a"), "inline " + A + "::a ()V\n", "UTF-8");
+        writeStringToFile(new File(fragments, "method-b"), "dontinline " + A + "::b ()V\n", "UTF-8");
+
+        final CompilerDirectivesControl control = new CompilerDirectivesControl(getClass().getClassLoader(), "META-INF/hotspot_compiler");
+        try {
+            try {
+                control.loadFile(fragments.getPath());
+            } catch (JMException e) {
+                throw new SkipException("Compiler directives are not supported by this JVM", e);
+            }
+            assertEquals(asList(control.getInstalledLines()), asList("dontinline " + A + "::b ()V", "inline " + A + "::a ()V"));
+            assertEquals(control.getInstalledDirectiveCount(), 1);
+        } finally {
+            control.remove();
+        }
+    }
+
+    @Test
+    public void testRegister() throws Exception
+    {
+        final CompilerDirectivesControl control = new CompilerDirectivesControl(getClass().getClassLoader(), "META-INF/hotspot_compiler");
+        control.register();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(CompilerDirectivesControl.OBJECT_NAME);
+        try {
+            assertEquals(server.getAttribute(name, "ReloadCount"), 0L);
+            assertEquals(server.invoke(name, "reload", new Object[0], new String[0]), "Unchanged, 0 lines installed");
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static void load(CompilerDirectivesControl control, String content) throws Exception
+    {
+        try {
+            control.load(content);
+        } catch (JMException e) {
+            throw new SkipException("Compiler directives are not supported by this JVM", e);
+        }
+    }
+
+    private static void assertPrinted(String expected) throws JMException
+    {
+        final String printed = CompileCommandAgent.invoke("compilerDirectivesPrint");
+        assertTrue(printed.contains(expected), printed);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Common configuration for the compile command benchmarks.
+ * <p>Each subclass exercises a single annotation on a callee and is run by {@link CompileCommandBenchmarks}
+ * with and without the generated <code>hotspot_compiler</code> file.</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class AbstractBenchmark {
+
+    protected static final int SIZE = 1024;
+
+    protected int[] data;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        data = new int[SIZE];
+        for (int i = 0; i < SIZE; i++)
+            data[i] = random.nextInt();
+    }
+
+    protected static int sum(int[] values) {
+        int sum = 0;
+        for (int value : values)
+            sum += value;
+        return sum;
+    }
+}
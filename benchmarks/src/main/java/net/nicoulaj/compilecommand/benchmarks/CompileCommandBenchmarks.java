@@ -0,0 +1,148 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * Runs every benchmark of this package twice, once without and once with <code>-XX:CompileCommandFile</code>,
+ * and reports the difference.
+ * <p>Each benchmark is given a compile command file restricted to the lines generated for its own class, so that
+ * commands such as <code>compileonly</code> do not leak into the other benchmarks.</p>
+ * <p>Usage: <code>java -jar target/benchmarks.jar [regexp]</code>, where the optional regular expression filters
+ * the benchmark classes by simple name.</p>
+ */
+public final class CompileCommandBenchmarks {
+
+    private static final String COMPILE_COMMAND_FILE = "META-INF/hotspot_compiler";
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final Class<?>[] BENCHMARKS = {
+            BreakBenchmark.class,
+            CompileOnlyBenchmark.class,
+            DontInlineBenchmark.class,
+            ExcludeBenchmark.class,
+            InlineBenchmark.class,
+            LogBenchmark.class,
+            OptionBenchmark.class,
+            OptionsBenchmark.class,
+            PrintBenchmark.class,
+            QuietBenchmark.class
+    };
+
+    private CompileCommandBenchmarks() {
+    }
+
+    public static void main(String... args) throws IOException, RunnerException {
+        final Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        final List<String> lines = readCompileCommands();
+
+        final List<String> report = new ArrayList<String>();
+        for (Class<?> benchmark : BENCHMARKS) {
+            if (!filter.matcher(benchmark.getSimpleName()).find())
+                continue;
+
+            final Map<String, RunResult> baseline = run(benchmark, null);
+            final Map<String, RunResult> hinted = run(benchmark, writeCompileCommandFile(benchmark, lines));
+
+            for (Map.Entry<String, RunResult> entry : baseline.entrySet())
+                report.add(formatResult(entry.getKey(), entry.getValue(), hinted.get(entry.getKey())));
+        }
+
+        System.out.println();
+        System.out.println(format("%-60s %12s %12s %-10s %8s", "Benchmark (mode)", "Baseline", "Hinted", "Unit", "Delta"));
+        for (String line : report)
+            System.out.println(line);
+    }
+
+    private static Map<String, RunResult> run(Class<?> benchmark, File compileCommandFile) throws RunnerException {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .include("^" + Pattern.quote(benchmark.getName()) + "\\.")
+                .forks(1);
+        if (compileCommandFile != null)
+            options.jvmArgsAppend("-XX:CompileCommandFile=" + compileCommandFile.getAbsolutePath());
+
+        final Collection<RunResult> results = new Runner(options.build()).run();
+        final Map<String, RunResult> indexed = new LinkedHashMap<String, RunResult>();
+        for (RunResult result : results)
+            indexed.put(result.getParams().getBenchmark() + " (" + result.getParams().getMode().shortLabel() + ")", result);
+        return indexed;
+    }
+
+    private static String formatResult(String name, RunResult baseline, RunResult hinted) {
+        final double base = baseline.getPrimaryResult().getScore();
+        if (hinted == null)
+            return format("%-60s %12.3f %12s %-10s %8s", name, base, "-", baseline.getPrimaryResult().getScoreUnit(), "-");
+        final double hint = hinted.getPrimaryResult().getScore();
+        return format("%-60s %12.3f %12.3f %-10s %+7.1f%%",
+                      name, base, hint, baseline.getPrimaryResult().getScoreUnit(), (hint - base) / base * 100);
+    }
+
+    private static List<String> readCompileCommands() throws IOException {
+        final InputStream in = CompileCommandBenchmarks.class.getClassLoader().getResourceAsStream(COMPILE_COMMAND_FILE);
+        if (in == null)
+            throw new IOException("No " + COMPILE_COMMAND_FILE + " on the classpath, was the annotation processor run?");
+
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line);
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static File writeCompileCommandFile(Class<?> benchmark, List<String> lines) throws IOException {
+        final File file = File.createTempFile("hotspot_compiler-" + benchmark.getSimpleName() + "-", null);
+        file.deleteOnExit();
+
+        final PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), CHARSET));
+        try {
+            for (String line : lines)
+                if ("quiet".equals(line) || line.contains(" " + benchmark.getName() + "::") || line.contains(" " + benchmark.getName() + "$"))
+                    pw.println(line);
+        } finally {
+            pw.close();
+        }
+        return file;
+    }
+}
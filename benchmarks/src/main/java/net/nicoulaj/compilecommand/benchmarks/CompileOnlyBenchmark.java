@@ -0,0 +1,39 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.benchmarks;
+
+import net.nicoulaj.compilecommand.annotations.CompileOnly;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the effect of {@link CompileOnly} on a hot loop, every other method being left to the interpreter.
+ */
+@State(Scope.Thread)
+public class CompileOnlyBenchmark extends AbstractBenchmark {
+
+    @Benchmark
+    public int compileOnly() {
+        return compiled(data);
+    }
+
+    @CompileOnly
+    private static int compiled(int[] values) {
+        return sum(values);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.benchmarks;
+
+import net.nicoulaj.compilecommand.annotations.DontInline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the effect of {@link DontInline} on a tiny callee the just in time compiler would otherwise always inline.
+ */
+@State(Scope.Thread)
+public class DontInlineBenchmark extends AbstractBenchmark {
+
+    @Benchmark
+    public int dontInline() {
+        int sum = 0;
+        for (int value : data)
+            sum = add(sum, value);
+        return sum;
+    }
+
+    @DontInline
+    private static int add(int a, int b) {
+        return a + b;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.benchmarks;
+
+import net.nicoulaj.compilecommand.annotations.Inline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the effect of {@link Inline} on a callee too big to be inlined by default
+ * (more than <code>-XX:FreqInlineSize</code> bytes of bytecode).
+ */
+@State(Scope.Thread)
+public class InlineBenchmark extends AbstractBenchmark {
+
+    private static final int PRIME = 0x01000193;
+
+    @Benchmark
+    public int inline() {
+        int hash = 0;
+        for (int offset = 0; offset < SIZE; offset += 32)
+            hash ^= hash(data, offset);
+        return hash;
+    }
+
+    @Inline
+    private static int hash(int[] d, int o) {
+        int h = 0x811c9dc5;
+        h = (h ^ d[o]) * PRIME;
+        h = (h ^ d[o + 1]) * PRIME;
+        h = (h ^ d[o + 2]) * PRIME;
+        h = (h ^ d[o + 3]) * PRIME;
+        h = (h ^ d[o + 4]) * PRIME;
+        h = (h ^ d[o + 5]) * PRIME;
+        h = (h ^ d[o + 6]) * PRIME;
+        h = (h ^ d[o + 7]) * PRIME;
+        h = (h ^ d[o + 8]) * PRIME;
+        h = (h ^ d[o + 9]) * PRIME;
+        h = (h ^ d[o + 10]) * PRIME;
+        h = (h ^ d[o + 11]) * PRIME;
+        h = (h ^ d[o + 12]) * PRIME;
+        h = (h ^ d[o + 13]) * PRIME;
+        h = (h ^ d[o + 14]) * PRIME;
+        h = (h ^ d[o + 15]) * PRIME;
+        h = (h ^ d[o + 16]) * PRIME;
+        h = (h ^ d[o + 17]) * PRIME;
+        h = (h ^ d[o + 18]) * PRIME;
+        h = (h ^ d[o + 19]) * PRIME;
+        h = (h ^ d[o + 20]) * PRIME;
+        h = (h ^ d[o + 21]) * PRIME;
+        h = (h ^ d[o + 22]) * PRIME;
+        h = (h ^ d[o + 23]) * PRIME;
+        h = (h ^ d[o + 24]) * PRIME;
+        h = (h ^ d[o + 25]) * PRIME;
+        h = (h ^ d[o + 26]) * PRIME;
+        h = (h ^ d[o + 27]) * PRIME;
+        h = (h ^ d[o + 28]) * PRIME;
+        h = (h ^ d[o + 29]) * PRIME;
+        h = (h ^ d[o + 30]) * PRIME;
+        h = (h ^ d[o + 31]) * PRIME;
+        return h;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.benchmarks;
+
+import net.nicoulaj.compilecommand.CompileCommandProcessor;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+
+/**
+ * Measures the annotation processing throughput of {@link CompileCommandProcessor} on synthetic source trees.
+ * <p>For each size, a source tree with that many annotated methods is generated and compiled through the
+ * <code>javax.tools</code> API with <code>-proc:only</code>. The time and allocation of every processing round are
+ * reported, the last round being the one that writes the compile command file.</p>
+ * <p>Usage: <code>java -cp target/benchmarks.jar net.nicoulaj.compilecommand.benchmarks.ProcessorBenchmark
+ * [sizes] [iterations]</code>, where sizes defaults to <code>1000,10000,100000</code> and iterations, the first of
+ * which are warmup, defaults to <code>3</code>.</p>
+ */
+public final class ProcessorBenchmark {
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+    private static final int METHODS_PER_CLASS = 100;
+
+    private static final String[] ANNOTATIONS = {
+            "@Break",
+            "@CompileOnly",
+            "@DontInline",
+            "@Exclude",
+            "@Inline",
+            "@Log",
+            "@Option(\"Vectorize\")",
+            "@Options({\"Vectorize\", \"PrintInlining\"})",
+            "@Print"
+    };
+
+    private static final String[] PARAMETERS = {
+            "",
+            "int a",
+            "long a, double b",
+            "String a, java.util.List<String> b",
+            "int[] a, java.util.Map<String, Integer> b, char c",
+            "Object a, byte[][] b, boolean c, short d"
+    };
+
+    private ProcessorBenchmark() {
+    }
+
+    public static void main(String... args) throws IOException {
+        final String[] sizes = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        for (String size : sizes) {
+            final File sources = generate(Integer.parseInt(size.trim()));
+            for (int i = 1; i <= iterations; i++) {
+                final List<Round> rounds = compile(sources);
+                System.out.println(format("# %s annotated methods, iteration %d/%d%s",
+                                          size.trim(), i, iterations, i < iterations ? " (warmup)" : ""));
+                for (Round round : rounds)
+                    System.out.println(round);
+            }
+        }
+    }
+
+    private static File generate(int methods) throws IOException {
+        final File root = new File(new File("target", "processor-benchmark"), String.valueOf(methods));
+        final File dir = new File(root, "bench");
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Failed creating " + dir);
+
+        for (int c = 0; c * METHODS_PER_CLASS < methods; c++) {
+            final File file = new File(dir, "Class" + c + ".java");
+            final PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            try {
+                pw.println("package bench;");
+                pw.println("import net.nicoulaj.compilecommand.annotations.*;");
+                pw.println("public class Class" + c + " {");
+                for (int m = 0; m < METHODS_PER_CLASS && c * METHODS_PER_CLASS + m < methods; m++) {
+                    pw.println("    " + ANNOTATIONS[m % ANNOTATIONS.length]);
+                    pw.println("    public void method" + m / PARAMETERS.length
+                               + "(" + PARAMETERS[m % PARAMETERS.length] + ") {}");
+                }
+                pw.println("}");
+            } finally {
+                pw.close();
+            }
+        }
+        return root;
+    }
+
+    private static List<Round> compile(File sources) throws IOException {
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final StandardJavaFileManager fileManager = COMPILER.getStandardFileManager(diagnostics, Locale.getDefault(), Charset.forName("UTF-8"));
+        final File output = new File(sources, "classes-" + nanoTime());
+        try {
+            if (!output.mkdirs())
+                throw new IOException("Failed creating " + output);
+            fileManager.setLocation(CLASS_OUTPUT, singleton(output));
+
+            final File[] files = new File(sources, "bench").listFiles();
+            if (files == null)
+                throw new IOException("Failed listing " + sources);
+
+            final RecordingProcessor processor = new RecordingProcessor(new CompileCommandProcessor());
+            final JavaCompiler.CompilationTask task = COMPILER.getTask(null,
+                                                                       fileManager,
+                                                                       diagnostics,
+                                                                       asList("-proc:only"),
+                                                                       null,
+                                                                       fileManager.getJavaFileObjects(files));
+            task.setProcessors(singleton(processor));
+            if (!task.call())
+                throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+            return processor.rounds;
+        } finally {
+            fileManager.close();
+            try {
+                delete(output);
+            } catch (IOException e) {
+                // Do not hide the failure of the compilation, a leftover directory does not affect the next iterations
+                System.err.println("Failed deleting " + output + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null)
+            for (File child : children)
+                delete(child);
+        if (file.exists() && !file.delete())
+            throw new IOException("Failed deleting " + file);
+    }
+
+    private static final class Round {
+
+        final int number;
+        final int rootElements;
+        final boolean last;
+        final long nanos;
+        final long allocatedBytes;
+
+        Round(int number, int rootElements, boolean last, long nanos, long allocatedBytes) {
+            this.number = number;
+            this.rootElements = rootElements;
+            this.last = last;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return format("round %d%-10s %6d root elements %10.3f ms %10.3f MB allocated",
+                          number, last ? " (output)" : "", rootElements, nanos / 1e6, allocatedBytes / 1e6);
+        }
+    }
+
+    /**
+     * {@link Processor} delegate recording the time and allocation of each round.
+     */
+    private static final class RecordingProcessor implements Processor {
+
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        private final Processor delegate;
+
+        private final List<Round> rounds = new ArrayList<Round>();
+
+        RecordingProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            delegate.init(processingEnv);
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            final long thread = Thread.currentThread().getId();
+            final long allocated = threads.getThreadAllocatedBytes(thread);
+            final long start = nanoTime();
+            final boolean claimed = delegate.process(annotations, roundEnv);
+            final long nanos = nanoTime() - start;
+            rounds.add(new Round(rounds.size() + 1,
+                                 roundEnv.getRootElements().size(),
+                                 roundEnv.processingOver(),
+                                 nanos,
+                                 threads.getThreadAllocatedBytes(thread) - allocated));
+            return claimed;
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element,
+                                                             AnnotationMirror annotation,
+                                                             ExecutableElement member,
+                                                             String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+    }
+}
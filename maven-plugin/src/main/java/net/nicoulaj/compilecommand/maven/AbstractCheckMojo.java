@@ -0,0 +1,123 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Base class of the goals checking the <code>hotspot_compiler</code> file of the project against its compiled
+ * classes with a {@link CompileCommandVerifier}.
+ */
+abstract class AbstractCheckMojo extends AbstractMojo {
+
+    /**
+     * The directory of the compiled classes.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    /**
+     * The path of the <code>hotspot_compiler</code> file in the classes directory.
+     */
+    @Parameter(property = "compile.command.check.path", defaultValue = "META-INF/hotspot_compiler", required = true)
+    private String path;
+
+    /**
+     * Whether to fail the build when the check finds problems, instead of logging warnings.
+     */
+    @Parameter(property = "compile.command.check.failOnError", defaultValue = "false")
+    private boolean failOnError;
+
+    /**
+     * The charset of the <code>hotspot_compiler</code> file.
+     */
+    @Parameter(property = "compile.command.check.charset", defaultValue = "UTF-8", required = true)
+    private String charset;
+
+    @Parameter(property = "compile.command.check.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping");
+            return;
+        }
+
+        final File file = new File(classesDirectory, path);
+        if (!file.isFile()) {
+            getLog().info("No compiler command file at " + file);
+            return;
+        }
+
+        final List<String> messages;
+        try {
+            messages = check(new CompileCommandVerifier(classesDirectory), readLines(file));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed checking " + file, e);
+        }
+
+        for (String message : messages)
+            if (failOnError)
+                getLog().error(message);
+            else
+                getLog().warn(message);
+
+        if (failOnError && !messages.isEmpty())
+            throw new MojoFailureException(getFailureMessage(messages.size()) + ", see the build log");
+    }
+
+    /**
+     * Check the lines of the <code>hotspot_compiler</code> file.
+     *
+     * @param verifier the verifier of the classes directory.
+     * @param lines    the lines of the file, without <code>quiet</code>.
+     * @return a message for each problem found.
+     * @throws IOException if a class file could not be read.
+     */
+    abstract List<String> check(CompileCommandVerifier verifier, SortedSet<String> lines) throws IOException;
+
+    /**
+     * @param count the number of problems found.
+     * @return the message of the build failure.
+     */
+    abstract String getFailureMessage(int count);
+
+    private SortedSet<String> readLines(File file) throws IOException {
+        final SortedSet<String> lines = new TreeSet<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+        try {
+            IncrementalCompilationHelper.readLines(reader, lines);
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Check that the method patterns of the <code>hotspot_compiler</code> file of the project match methods of its
+ * compiled classes.
+ * <p>HotSpot silently ignores patterns that match no method, for instance when the signature computed by the
+ * annotation processor differs from the descriptor in the class file.</p>
+ */
+@Mojo(name = "check-descriptors",
+      defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+      threadSafe = true)
+public final class CheckDescriptorsMojo extends AbstractCheckMojo {
+
+    @Override
+    List<String> check(CompileCommandVerifier verifier, SortedSet<String> lines) throws IOException {
+        return verifier.checkDescriptors(lines);
+    }
+
+    @Override
+    String getFailureMessage(int count) {
+        return count + " compiler command lines match no method";
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Check the bytecode size of the methods forced inline by the <code>hotspot_compiler</code> file of the project.
+ * <p><code>inline</code> forces inlining whatever the size of the method, so inlining big methods can exhaust the
+ * node budget of C2 and make the caller slower. The default maximum size is the default value of
+ * <code>-XX:FreqInlineSize</code> on x86_64, the size up to which C2 inlines hot methods by itself.</p>
+ */
+@Mojo(name = "check-inline-size",
+      defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+      threadSafe = true)
+public final class CheckInlineSizeMojo extends AbstractCheckMojo {
+
+    /**
+     * The maximum bytecode size of a method forced inline, in bytes.
+     */
+    @Parameter(property = "compile.command.check.maxInlineSize", defaultValue = "325", required = true)
+    private int maxInlineSize;
+
+    @Override
+    List<String> check(CompileCommandVerifier verifier, SortedSet<String> lines) throws IOException {
+        return verifier.checkInlineSize(lines, maxInlineSize);
+    }
+
+    @Override
+    String getFailureMessage(int count) {
+        return count + " methods forced inline are bigger than " + maxInlineSize + " bytes";
+    }
+}
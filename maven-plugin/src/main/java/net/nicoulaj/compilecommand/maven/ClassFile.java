@@ -0,0 +1,217 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The name and method table of a class file, as read from its bytes.
+ * <p>Only what is needed to match compiler command patterns is read: the constant pool is skipped but for its
+ * <code>Utf8</code> and <code>Class</code> entries, and the only attribute read is the length of the
+ * <code>Code</code> attribute of methods.</p>
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html">The class file format</a>
+ */
+public final class ClassFile {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final String name;
+
+    private final List<Method> methods;
+
+    private ClassFile(String name, List<Method> methods) {
+        this.name = name;
+        this.methods = Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * @return the binary name of the class, for example <code>net.nicoulaj.Foo$Bar</code>.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the methods declared in the class, including constructors, initializers and synthetic methods.
+     */
+    public List<Method> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Read a class file. The stream is not closed.
+     *
+     * @param in the class file bytes.
+     * @return the class file.
+     * @throws IOException if the stream could not be read or is not a class file.
+     */
+    public static ClassFile read(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not a class file");
+        data.readUnsignedShort(); // minor_version
+        data.readUnsignedShort(); // major_version
+
+        final int constantPoolCount = data.readUnsignedShort();
+        final String[] utf8 = new String[constantPoolCount];
+        final int[] classes = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = data.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = data.readUTF();
+                    break;
+                case 7: // Class
+                    classes[i] = data.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skip(data, 2);
+                    break;
+                case 15: // MethodHandle
+                    skip(data, 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skip(data, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skip(data, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+
+        data.readUnsignedShort(); // access_flags
+        final String name = utf8[classes[data.readUnsignedShort()]].replace('/', '.');
+        data.readUnsignedShort(); // super_class
+        skip(data, 2 * data.readUnsignedShort()); // interfaces
+
+        final int fieldCount = data.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            skip(data, 6);
+            skipAttributes(data);
+        }
+
+        final int methodCount = data.readUnsignedShort();
+        final List<Method> methods = new ArrayList<Method>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            final int access = data.readUnsignedShort();
+            final String methodName = utf8[data.readUnsignedShort()];
+            final String descriptor = utf8[data.readUnsignedShort()];
+            int codeLength = -1;
+            final int attributeCount = data.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                final String attribute = utf8[data.readUnsignedShort()];
+                final int length = data.readInt();
+                if ("Code".equals(attribute)) {
+                    skip(data, 4); // max_stack, max_locals
+                    codeLength = data.readInt();
+                    skip(data, length - 8);
+                } else {
+                    skip(data, length);
+                }
+            }
+            methods.add(new Method(methodName, descriptor, access, codeLength));
+        }
+
+        return new ClassFile(name, methods);
+    }
+
+    private static void skipAttributes(DataInputStream data) throws IOException {
+        final int attributeCount = data.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            skip(data, 2);
+            skip(data, data.readInt());
+        }
+    }
+
+    private static void skip(DataInputStream data, int length) throws IOException {
+        data.readFully(new byte[length]);
+    }
+
+    /**
+     * A method of a class file.
+     */
+    public static final class Method {
+
+        private final String name;
+
+        private final String descriptor;
+
+        private final int access;
+
+        private final int codeLength;
+
+        Method(String name, String descriptor, int access, int codeLength) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.access = access;
+            this.codeLength = codeLength;
+        }
+
+        /**
+         * @return the name of the method, <code>&lt;init&gt;</code> for constructors.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the descriptor of the method, for example <code>(Ljava/lang/String;)V</code>.
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * @return the access flags of the method.
+         */
+        public int getAccess() {
+            return access;
+        }
+
+        /**
+         * @return the length of the bytecode of the method, or <code>-1</code> for abstract and native methods.
+         */
+        public int getCodeLength() {
+            return codeLength;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + descriptor;
+        }
+    }
+}
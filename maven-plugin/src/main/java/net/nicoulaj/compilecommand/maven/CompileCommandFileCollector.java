@@ -0,0 +1,187 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Collects the lines of the <code>hotspot_compiler</code> files and fragment directories found in classpath
+ * elements, and writes them merged following the rules of {@link IncrementalCompilationHelper}.
+ * <p>Jar entries are read in place, without extracting them. Jars are only enumerated when fragment directories
+ * are looked for, otherwise the <code>hotspot_compiler</code> entry is looked up directly.</p>
+ */
+public final class CompileCommandFileCollector {
+
+    private final String path;
+
+    private final List<String> fragmentDirectories;
+
+    private final Charset charset;
+
+    private final SortedSet<String> lines = new TreeSet<String>();
+
+    private boolean quiet;
+
+    private int fileCount;
+
+    /**
+     * @param path                the path of the <code>hotspot_compiler</code> files in classpath elements.
+     * @param fragmentDirectories the paths of the fragment directories in classpath elements.
+     * @param charset             the charset of the files and fragments, and of the output.
+     */
+    public CompileCommandFileCollector(String path, Collection<String> fragmentDirectories, Charset charset) {
+        this.path = trimSlashes(path);
+        this.fragmentDirectories = new ArrayList<String>(fragmentDirectories.size());
+        for (String fragmentDirectory : fragmentDirectories)
+            this.fragmentDirectories.add(trimSlashes(fragmentDirectory));
+        this.charset = charset;
+    }
+
+    /**
+     * Collect the lines of a classpath element, a directory or a jar. Elements that do not exist, and files that are
+     * not <code>.jar</code> or <code>.zip</code> archives, are ignored.
+     *
+     * @param element the classpath element.
+     * @throws IOException if the element or one of its files could not be read.
+     */
+    public void collect(File element) throws IOException {
+        if (element.isDirectory())
+            collectDirectory(element);
+        else if (element.isFile() && isArchive(element.getName()))
+            collectJar(element);
+    }
+
+    /**
+     * Write the merged lines.
+     *
+     * @param outputFile the <code>hotspot_compiler</code> file to write.
+     * @throws IOException if the output could not be written.
+     */
+    public void write(File outputFile) throws IOException {
+        final File parent = outputFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Could not create directory " + parent);
+        IncrementalCompilationHelper.writeLines(outputFile, charset, quiet, lines);
+    }
+
+    /**
+     * @return the number of files and fragments read.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return the number of distinct lines read, including the <code>quiet</code> command.
+     */
+    public int getLineCount() {
+        return lines.size() + (quiet ? 1 : 0);
+    }
+
+    private void collectDirectory(File directory) throws IOException {
+        final File file = new File(directory, path);
+        if (file.isFile())
+            collectFile(file);
+
+        for (String fragmentDirectory : fragmentDirectories) {
+            final File[] fragments = new File(directory, fragmentDirectory).listFiles();
+            if (fragments != null)
+                for (File fragment : fragments)
+                    if (fragment.isFile())
+                        collectFile(fragment);
+        }
+    }
+
+    private void collectFile(File file) throws IOException {
+        BufferedReader reader = null;
+        try {
+            reader = Files.newBufferedReader(file.toPath(), charset);
+            quiet |= IncrementalCompilationHelper.readLines(reader, lines);
+            fileCount++;
+        } finally {
+            if (reader != null)
+                reader.close();
+        }
+    }
+
+    private void collectJar(File jar) throws IOException {
+        final ZipFile zip = new ZipFile(jar);
+        try {
+            final ZipEntry entry = zip.getEntry(path);
+            if (entry != null && !entry.isDirectory())
+                collectEntry(zip, entry);
+
+            if (fragmentDirectories.isEmpty())
+                return;
+
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                final ZipEntry fragment = entries.nextElement();
+                if (!fragment.isDirectory() && isFragment(fragment.getName()))
+                    collectEntry(zip, fragment);
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void collectEntry(ZipFile zip, ZipEntry entry) throws IOException {
+        final InputStream in = zip.getInputStream(entry);
+        try {
+            quiet |= IncrementalCompilationHelper.readLines(new BufferedReader(new InputStreamReader(in, charset)), lines);
+            fileCount++;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static boolean isArchive(String name) {
+        final String lowerCase = name.toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".jar") || lowerCase.endsWith(".zip");
+    }
+
+    private boolean isFragment(String name) {
+        final int slash = name.lastIndexOf('/');
+        return slash > 0 && fragmentDirectories.contains(name.substring(0, slash));
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/')
+            start++;
+        while (end > start && path.charAt(end - 1) == '/')
+            end--;
+        return path.substring(start, end);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import net.nicoulaj.compilecommand.MethodPattern;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the lines of a <code>hotspot_compiler</code> file against the class files of a classes directory.
+ * <p>Lines are read as {@link MethodPattern}s. Lines whose class is not in the classes directory, such as hints on
+ * dependencies or class patterns with wildcards, can not be checked and are ignored.</p>
+ */
+public final class CompileCommandVerifier {
+
+    private final File classesDirectory;
+
+    private final Map<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+
+    /**
+     * @param classesDirectory the directory of the compiled classes.
+     */
+    public CompileCommandVerifier(File classesDirectory) {
+        this.classesDirectory = classesDirectory;
+    }
+
+    /**
+     * Check the size of the methods forced inline by <code>inline</code> lines.
+     *
+     * @param lines   the lines of the <code>hotspot_compiler</code> file.
+     * @param maxSize the maximum bytecode size of a method forced inline.
+     * @return a message for each method forced inline bigger than <code>maxSize</code>.
+     * @throws IOException if a class file could not be read.
+     */
+    public List<String> checkInlineSize(Iterable<String> lines, int maxSize) throws IOException {
+        final List<String> messages = new ArrayList<String>();
+        for (String line : lines) {
+            final MethodPattern pattern = MethodPattern.parse(line);
+            if (pattern == null || !"inline".equals(pattern.getCommand()))
+                continue;
+            final List<ClassFile.Method> methods = resolve(pattern);
+            if (methods == null)
+                continue;
+            for (ClassFile.Method method : methods)
+                if (method.getCodeLength() > maxSize)
+                    messages.add(String.format("%s::%s is forced inline by \"%s\" but has %d bytes of bytecode, more than %d",
+                                               pattern.getClassName(), method, line, method.getCodeLength(), maxSize));
+        }
+        return messages;
+    }
+
+    /**
+     * Check that the method pattern of each line matches at least one method.
+     * <p>Unlike other lines, lines whose class is not in the classes directory are reported, as the class name may be
+     * wrong, for instance with a nested class written with a <code>.</code> instead of a <code>$</code>. Patterns with
+     * class wildcards are ignored.</p>
+     *
+     * @param lines the lines of the <code>hotspot_compiler</code> file.
+     * @return a message for each line matching no method.
+     * @throws IOException if a class file could not be read.
+     */
+    public List<String> checkDescriptors(Iterable<String> lines) throws IOException {
+        final List<String> messages = new ArrayList<String>();
+        for (String line : lines) {
+            final MethodPattern pattern = MethodPattern.parse(line);
+            if (pattern == null || pattern.getClassName().indexOf('*') >= 0)
+                continue;
+            final ClassFile classFile = getClassFile(pattern.getClassName());
+            if (classFile == null) {
+                messages.add(String.format("\"%s\" matches no method, class %s is not in %s",
+                                           line, pattern.getClassName(), classesDirectory));
+                continue;
+            }
+            final List<ClassFile.Method> methods = resolve(pattern);
+            if (methods.isEmpty())
+                messages.add(String.format("\"%s\" matches no method, %s declares %s",
+                                           line, pattern.getClassName(), getCandidates(classFile, pattern)));
+        }
+        return messages;
+    }
+
+    private static String getCandidates(ClassFile classFile, MethodPattern pattern) {
+        final List<ClassFile.Method> candidates = new ArrayList<ClassFile.Method>();
+        for (ClassFile.Method method : classFile.getMethods())
+            if (pattern.matchesName(method.getName()))
+                candidates.add(method);
+        return candidates.isEmpty() ? "no method " + pattern.getMethodName() : candidates.toString();
+    }
+
+    private List<ClassFile.Method> resolve(MethodPattern pattern) throws IOException {
+        final ClassFile classFile = getClassFile(pattern.getClassName());
+        if (classFile == null)
+            return null;
+        final List<ClassFile.Method> methods = new ArrayList<ClassFile.Method>();
+        for (ClassFile.Method method : classFile.getMethods())
+            if (pattern.matches(classFile.getName(), method.getName(), method.getDescriptor()))
+                methods.add(method);
+        return methods;
+    }
+
+    private ClassFile getClassFile(String className) throws IOException {
+        if (className.indexOf('*') >= 0)
+            return null;
+        if (classFiles.containsKey(className))
+            return classFiles.get(className);
+
+        ClassFile classFile = null;
+        final File file = new File(classesDirectory, className.replace('.', '/') + ".class");
+        if (file.isFile()) {
+            final InputStream in = new FileInputStream(file);
+            try {
+                classFile = ClassFile.read(in);
+            } catch (IOException e) {
+                throw new IOException("Failed reading class file " + file, e);
+            } finally {
+                in.close();
+            }
+        }
+        classFiles.put(className, classFile);
+        return classFile;
+    }
+}
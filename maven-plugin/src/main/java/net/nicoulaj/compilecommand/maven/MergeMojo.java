@@ -0,0 +1,104 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Merge the <code>hotspot_compiler</code> files and fragment directories found on the runtime classpath of the
+ * project into a single file, for use with <code>-XX:CompileCommandFile</code>.
+ */
+@Mojo(name = "merge",
+      defaultPhase = LifecyclePhase.PREPARE_PACKAGE,
+      requiresDependencyResolution = ResolutionScope.RUNTIME,
+      threadSafe = true)
+public final class MergeMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * The merged <code>hotspot_compiler</code> file to write.
+     */
+    @Parameter(property = "compile.command.merge.output", defaultValue = "${project.build.directory}/hotspot_compiler", required = true)
+    private File outputFile;
+
+    /**
+     * The path of the <code>hotspot_compiler</code> files in the classpath elements.
+     */
+    @Parameter(property = "compile.command.merge.path", defaultValue = "META-INF/hotspot_compiler", required = true)
+    private String path;
+
+    /**
+     * The paths of fragment directories in the classpath elements, as written with the
+     * <code>compile.command.incremental.output</code> processor option.
+     */
+    @Parameter
+    private List<String> fragmentDirectories;
+
+    /**
+     * The charset of the files read and of the merged file.
+     */
+    @Parameter(property = "compile.command.merge.charset", defaultValue = "UTF-8", required = true)
+    private String charset;
+
+    @Parameter(property = "compile.command.merge.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping");
+            return;
+        }
+
+        final List<String> elements;
+        try {
+            elements = project.getRuntimeClasspathElements();
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Failed resolving the runtime classpath", e);
+        }
+
+        final CompileCommandFileCollector collector =
+            new CompileCommandFileCollector(path,
+                                            fragmentDirectories != null ? fragmentDirectories : Collections.<String>emptyList(),
+                                            Charset.forName(charset));
+        try {
+            for (String element : elements)
+                collector.collect(new File(element));
+            collector.write(outputFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed merging compiler command files into " + outputFile, e);
+        }
+
+        getLog().info("Merged " + collector.getLineCount() + " lines from " + collector.getFileCount()
+                      + " files in " + elements.size() + " classpath elements into " + outputFile);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ClassFile}.
+ */
+public class ClassFileTest {
+
+    @Test
+    public void test() throws IOException
+    {
+        final ClassFile classFile = read(Fixture.class);
+        assertEquals(classFile.getName(), Fixture.class.getName());
+        assertEquals(classFile.getMethods().size(), 4);
+
+        final ClassFile.Method constructor = classFile.getMethods().get(0);
+        assertEquals(constructor.getName(), "<init>");
+        assertEquals(constructor.getDescriptor(), "()V");
+
+        final ClassFile.Method small = classFile.getMethods().get(1);
+        assertEquals(small.getName(), "small");
+        assertEquals(small.getDescriptor(), "(Ljava/lang/String;J)V");
+        assertEquals(small.getCodeLength(), 1);
+
+        final ClassFile.Method big = classFile.getMethods().get(2);
+        assertEquals(big.getName(), "big");
+        assertEquals(big.getDescriptor(), "()[I");
+        assertTrue(big.getCodeLength() > 325, "unexpected code length " + big.getCodeLength());
+
+        final ClassFile.Method abstractMethod = classFile.getMethods().get(3);
+        assertEquals(abstractMethod.getName(), "abstractMethod");
+        assertEquals(abstractMethod.getCodeLength(), -1);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testNotAClassFile() throws IOException
+    {
+        ClassFile.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}));
+    }
+
+    static ClassFile read(Class<?> type) throws IOException
+    {
+        final InputStream in = type.getResourceAsStream(type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class");
+        try {
+            return ClassFile.read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    abstract static class Fixture {
+
+        static final double CONSTANT = 0.5;
+
+        void small(String a, long b) {
+        }
+
+        static int[] big() {
+            return new int[]{
+                0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26,
+                27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50, 51,
+                52, 53, 54, 55, 56, 57, 58, 59, 60, 61, 62, 63, 64, 65, 66, 67, 68, 69, 70, 71, 72, 73, 74, 75, 76,
+                77, 78, 79, 80, 81, 82, 83, 84, 85, 86, 87, 88, 89, 90, 91, 92, 93, 94, 95, 96, 97, 98, 99
+            };
+        }
+
+        abstract void abstractMethod();
+    }
+}
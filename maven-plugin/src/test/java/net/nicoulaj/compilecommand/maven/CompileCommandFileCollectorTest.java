@@ -0,0 +1,122 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompileCommandFileCollector}.
+ */
+public class CompileCommandFileCollectorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String NL = System.getProperty("line.separator");
+
+    @Test
+    public void test() throws IOException
+    {
+        final File dir = newDirectory();
+        final File classes = new File(dir, "classes");
+        writeStringToFile(new File(classes, "META-INF/hotspot_compiler"),
+                          "quiet\ninline a/A.a ()V\ndontinline a/A.b ()V\n", UTF_8.name());
+        writeStringToFile(new File(classes, "FRAGMENTS/method-a.A.c"), "exclude a/A.c ()V\n", UTF_8.name());
+
+        final File jar = new File(dir, "b.jar");
+        writeJar(jar,
+                 "META-INF/hotspot_compiler", "quiet\ninline b/B.a ()V\ninline a/A.a ()V\n",
+                 "FRAGMENTS/method-b.B.c", "exclude b/B.c ()V\n",
+                 "FRAGMENTS/nested/ignored", "exclude b/B.d ()V\n",
+                 "b/B.class", "");
+
+        final CompileCommandFileCollector collector =
+            new CompileCommandFileCollector("META-INF/hotspot_compiler", asList("FRAGMENTS/"), UTF_8);
+        collector.collect(classes);
+        collector.collect(jar);
+        collector.collect(new File(dir, "missing.jar"));
+        final File pom = new File(dir, "b.pom");
+        writeStringToFile(pom, "<project/>", UTF_8.name());
+        collector.collect(pom);
+
+        final File output = new File(dir, "out/hotspot_compiler");
+        collector.write(output);
+
+        assertEquals(readFileToString(output, UTF_8.name()),
+                     "quiet" + NL +
+                     "dontinline a/A.b ()V" + NL +
+                     "exclude a/A.c ()V" + NL +
+                     "exclude b/B.c ()V" + NL +
+                     "inline a/A.a ()V" + NL +
+                     "inline b/B.a ()V" + NL);
+        assertEquals(collector.getFileCount(), 4);
+        assertEquals(collector.getLineCount(), 6);
+    }
+
+    @Test
+    public void testWithoutFragments() throws IOException
+    {
+        final File dir = newDirectory();
+        final File jar = new File(dir, "a.jar");
+        writeJar(jar,
+                 "META-INF/hotspot_compiler", "inline a/A.a ()V\n",
+                 "FRAGMENTS/method-a.A.c", "exclude a/A.c ()V\n");
+
+        final CompileCommandFileCollector collector =
+            new CompileCommandFileCollector("META-INF/hotspot_compiler", Collections.<String>emptyList(), UTF_8);
+        collector.collect(jar);
+
+        final File output = new File(dir, "hotspot_compiler");
+        collector.write(output);
+
+        assertEquals(readFileToString(output, UTF_8.name()), "inline a/A.a ()V" + NL);
+    }
+
+    private static File newDirectory()
+    {
+        final File dir = new File("target/test-collector/" + System.nanoTime());
+        assertTrue(dir.mkdirs(), "failed creating test directory");
+        return dir;
+    }
+
+    private static void writeJar(File jar, String... entries) throws IOException
+    {
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new ZipEntry(entries[i]));
+                out.write(entries[i + 1].getBytes(UTF_8.name()));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
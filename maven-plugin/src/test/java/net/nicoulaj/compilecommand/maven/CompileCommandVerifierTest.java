@@ -0,0 +1,88 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.maven;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompileCommandVerifier}.
+ */
+public class CompileCommandVerifierTest {
+
+    private static final String FIXTURE = ClassFileTest.Fixture.class.getName();
+
+    @Test
+    public void testCheckInlineSize() throws IOException, URISyntaxException
+    {
+        final List<String> messages = newVerifier().checkInlineSize(asList(
+            "inline " + FIXTURE + "::big ()[I",
+            "inline " + FIXTURE.replace('.', '/') + ".small",
+            "inline " + FIXTURE + "::*",
+            "inline " + FIXTURE + "::b*",
+            "inline com.acme.Missing::big ()[I",
+            "dontinline " + FIXTURE + "::big ()[I"
+        ), 325);
+
+        assertEquals(messages.size(), 3, messages.toString());
+        for (String message : messages)
+            assertTrue(message.startsWith(FIXTURE + "::big ()[I is forced inline by \"inline "), message);
+    }
+
+    @Test
+    public void testCheckInlineSizeBelowMaximum() throws IOException, URISyntaxException
+    {
+        assertEquals(newVerifier().checkInlineSize(asList("inline " + FIXTURE + "::*"), 10000).size(), 0);
+    }
+
+    @Test
+    public void testCheckDescriptors() throws IOException, URISyntaxException
+    {
+        final List<String> messages = newVerifier().checkDescriptors(asList(
+            "inline " + FIXTURE + "::big ()[I",
+            "option " + FIXTURE + "::small (Ljava.lang.String;J)V intx MaxNodeLimit 10000",
+            "dontinline " + FIXTURE.replace('.', '/') + ".small",
+            "print " + FIXTURE + "::*",
+            "inline com.acme.*::big",
+            "inline " + FIXTURE + "::small (Ljava.lang.String;I)V",
+            "inline " + FIXTURE + "::missing ()V",
+            "inline " + FIXTURE.replace('$', '.') + "::big ()[I"
+        ));
+
+        assertEquals(messages.size(), 3, messages.toString());
+        assertEquals(messages.get(0), "\"inline " + FIXTURE + "::small (Ljava.lang.String;I)V\" matches no method, "
+                                      + FIXTURE + " declares [small (Ljava/lang/String;J)V]");
+        assertEquals(messages.get(1), "\"inline " + FIXTURE + "::missing ()V\" matches no method, "
+                                      + FIXTURE + " declares no method missing");
+        assertTrue(messages.get(2).startsWith("\"inline " + FIXTURE.replace('$', '.') + "::big ()[I\" matches no method, class "),
+                   messages.get(2));
+    }
+
+    static CompileCommandVerifier newVerifier() throws URISyntaxException
+    {
+        return new CompileCommandVerifier(
+            new File(CompileCommandVerifierTest.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+    }
+}
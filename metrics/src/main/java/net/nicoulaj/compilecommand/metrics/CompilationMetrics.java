@@ -0,0 +1,296 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+import net.nicoulaj.compilecommand.MethodPattern;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the compilations and deoptimizations of the methods matched by <code>hotspot_compiler</code> lines, from the
+ * <code>jdk.Compilation</code>, <code>jdk.Deoptimization</code> and <code>jdk.CodeCacheFull</code> events of a Java
+ * Flight Recorder {@link RecordingStream} (JDK 14+).
+ * <p>Events are filtered on the thread of the stream. The names of the classes of the lines are kept in a hash set,
+ * so the events of other classes are dropped after a single lookup. Only lines with a wildcard in their class name
+ * require the methods of all classes to be matched against them, each method once.</p>
+ */
+public final class CompilationMetrics implements CompilationMetricsMXBean, Closeable {
+
+    static final String OBJECT_NAME = "net.nicoulaj.compilecommand:type=CompilationMetrics";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String[] lines;
+
+    /**
+     * The methods of the lines with a signature and without wildcard.
+     */
+    private final Set<String> descriptors = new HashSet<String>();
+
+    /**
+     * The class names of the lines without wildcard in their class name.
+     */
+    private final Set<String> classes = new HashSet<String>();
+
+    /**
+     * The lines without signature or with a wildcard.
+     */
+    private final List<MethodPattern> patterns = new ArrayList<MethodPattern>();
+
+    private final boolean classWildcards;
+
+    private final Map<String, MethodCompilationMetrics> methods = new ConcurrentHashMap<String, MethodCompilationMetrics>();
+
+    private final Set<String> unmatched = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong events = new AtomicLong();
+
+    private final AtomicLong matchedEvents = new AtomicLong();
+
+    private final AtomicLong codeCacheFull = new AtomicLong();
+
+    private volatile String codeCacheFullHeap;
+
+    private RecordingStream stream;
+
+    /**
+     * @param lines the <code>hotspot_compiler</code> lines, lines without method pattern are ignored.
+     */
+    public CompilationMetrics(Iterable<String> lines) {
+        final List<String> patternLines = new ArrayList<String>();
+        boolean wildcards = false;
+        for (String line : lines) {
+            final MethodPattern pattern = MethodPattern.parse(line);
+            if (pattern == null)
+                continue;
+            patternLines.add(line);
+            if (pattern.getClassName().contains("*"))
+                wildcards = true;
+            else
+                classes.add(pattern.getClassName());
+            if (pattern.getSignature() != null && !pattern.getClassName().contains("*") && !pattern.getMethodName().contains("*"))
+                descriptors.add(getKey(pattern.getClassName(), pattern.getMethodName(), pattern.getSignature()));
+            else
+                patterns.add(pattern);
+        }
+        this.lines = patternLines.toArray(new String[patternLines.size()]);
+        this.classWildcards = wildcards;
+        reset();
+    }
+
+    /**
+     * Collect the lines of all the <code>hotspot_compiler</code> files visible from a class loader.
+     *
+     * @param loader the class loader.
+     * @param path   the path of the <code>hotspot_compiler</code> files.
+     * @return the metrics of the methods of the lines, not started.
+     * @throws IOException if a file could not be read.
+     */
+    public static CompilationMetrics load(ClassLoader loader, String path) throws IOException {
+        final SortedSet<String> lines = new TreeSet<String>();
+        for (Enumeration<URL> urls = loader.getResources(path); urls.hasMoreElements(); ) {
+            final InputStream in = urls.nextElement().openStream();
+            try {
+                IncrementalCompilationHelper.readLines(new BufferedReader(new InputStreamReader(in, UTF_8)), lines);
+            } finally {
+                in.close();
+            }
+        }
+        return new CompilationMetrics(lines);
+    }
+
+    /**
+     * Start recording the events in the background, until {@link #close()}.
+     */
+    public synchronized void start() {
+        if (stream != null)
+            return;
+        stream = new RecordingStream();
+        // Compilations shorter than 1 second are not recorded with the default threshold
+        stream.enable("jdk.Compilation").withThreshold(Duration.ZERO);
+        stream.enable("jdk.Deoptimization");
+        stream.enable("jdk.CodeCacheFull");
+        stream.onEvent("jdk.Compilation", this::onCompilation);
+        stream.onEvent("jdk.Deoptimization", this::onDeoptimization);
+        stream.onEvent("jdk.CodeCacheFull", this::onCodeCacheFull);
+        stream.startAsync();
+    }
+
+    /**
+     * Register this instance on the platform MBean server.
+     *
+     * @throws JMException if this instance could not be registered.
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Stop recording the events.
+     */
+    @Override
+    public synchronized void close() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void onCompilation(RecordedEvent event) {
+        final RecordedMethod method = event.getValue("method");
+        if (method == null)
+            return;
+        // Renamed in recent JDKs
+        final boolean succeeded = event.hasField("succeeded") ? event.getBoolean("succeeded") : event.getBoolean("succeded");
+        compiled(method.getType().getName(), method.getName(), method.getDescriptor(), event.getShort("compileLevel"),
+                 succeeded, event.getBoolean("isOsr"), event.getLong("codeSize"), event.getLong("inlinedBytes"));
+    }
+
+    private void onDeoptimization(RecordedEvent event) {
+        final RecordedMethod method = event.getValue("method");
+        if (method != null)
+            deoptimized(method.getType().getName(), method.getName(), method.getDescriptor(), event.getString("reason"));
+    }
+
+    private void onCodeCacheFull(RecordedEvent event) {
+        codeCacheFull(event.getString("codeBlobType"));
+    }
+
+    void compiled(String type, String name, String descriptor, int level, boolean succeeded, boolean osr, long codeSize, long inlinedBytes) {
+        final MethodCompilationMetrics metrics = getMetrics(type, name, descriptor);
+        if (metrics != null)
+            metrics.compiled(level, succeeded, osr, codeSize, inlinedBytes);
+    }
+
+    void deoptimized(String type, String name, String descriptor, String reason) {
+        final MethodCompilationMetrics metrics = getMetrics(type, name, descriptor);
+        if (metrics != null)
+            metrics.deoptimized(reason);
+    }
+
+    void codeCacheFull(String heap) {
+        codeCacheFull.incrementAndGet();
+        codeCacheFullHeap = heap;
+    }
+
+    private MethodCompilationMetrics getMetrics(String type, String name, String descriptor) {
+        events.incrementAndGet();
+        final String className = type.replace('/', '.');
+        if (!classWildcards && !classes.contains(className))
+            return null;
+
+        final String key = getKey(className, name, descriptor);
+        MethodCompilationMetrics metrics = methods.get(key);
+        if (metrics == null && !unmatched.contains(key)) {
+            final String signature = descriptor.replace('.', '/');
+            for (MethodPattern pattern : patterns) {
+                if (pattern.matches(className, name, signature)) {
+                    metrics = methods.computeIfAbsent(key, MethodCompilationMetrics::new);
+                    break;
+                }
+            }
+            if (metrics == null)
+                unmatched.add(key);
+        }
+        if (metrics != null)
+            matchedEvents.incrementAndGet();
+        return metrics;
+    }
+
+    /**
+     * @return the method in the format of the <code>hotspot_compiler</code> lines.
+     */
+    static String getKey(String type, String name, String descriptor) {
+        return type.replace('/', '.') + "::" + name + " " + descriptor.replace('/', '.');
+    }
+
+    @Override
+    public Map<String, MethodCompilationMetrics> getMethods() {
+        final SortedMap<String, MethodCompilationMetrics> copy = new TreeMap<String, MethodCompilationMetrics>();
+        for (MethodCompilationMetrics metrics : methods.values())
+            copy.put(metrics.getMethod(), metrics.copy());
+        return copy;
+    }
+
+    @Override
+    public MethodCompilationMetrics getMethod(String method) {
+        final MethodCompilationMetrics metrics = methods.get(method);
+        return metrics != null ? metrics.copy() : null;
+    }
+
+    @Override
+    public String[] getLines() {
+        return lines.clone();
+    }
+
+    @Override
+    public long getEventCount() {
+        return events.get();
+    }
+
+    @Override
+    public long getMatchedEventCount() {
+        return matchedEvents.get();
+    }
+
+    @Override
+    public long getCodeCacheFullCount() {
+        return codeCacheFull.get();
+    }
+
+    @Override
+    public String getCodeCacheFullHeap() {
+        return codeCacheFullHeap;
+    }
+
+    @Override
+    public void reset() {
+        methods.clear();
+        for (String descriptor : descriptors)
+            methods.put(descriptor, new MethodCompilationMetrics(descriptor));
+        events.set(0);
+        matchedEvents.set(0);
+        codeCacheFull.set(0);
+        codeCacheFullHeap = null;
+    }
+}
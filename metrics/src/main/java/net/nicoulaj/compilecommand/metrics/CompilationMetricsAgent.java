@@ -0,0 +1,66 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.metrics;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * Java agent that registers a {@link CompilationMetrics} MBean for the methods of the <code>hotspot_compiler</code>
+ * files on the classpath, named <code>net.nicoulaj.compilecommand:type=CompilationMetrics</code>. Requires JDK 14+.
+ * <p>Usage: <code>-javaagent:compile-command-annotations-metrics.jar[=path=META-INF/hotspot_compiler,verbose]</code>,
+ * or attached at runtime, in which case the methods compiled before are only counted once they are recompiled.</p>
+ */
+public final class CompilationMetricsAgent {
+
+    private static final String DEFAULT_PATH = "META-INF/hotspot_compiler";
+
+    private CompilationMetricsAgent() {
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        run(args);
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) {
+        run(args);
+    }
+
+    private static void run(String args) {
+        String path = DEFAULT_PATH;
+        boolean verbose = false;
+        if (args != null)
+            for (String arg : args.split(","))
+                if (arg.startsWith("path="))
+                    path = arg.substring("path=".length());
+                else if ("verbose".equals(arg))
+                    verbose = true;
+
+        try {
+            final CompilationMetrics metrics = CompilationMetrics.load(ClassLoader.getSystemClassLoader(), path);
+            metrics.register();
+            metrics.start();
+            if (verbose)
+                log("Recording the compilations of the methods of " + metrics.getLines().length + " lines");
+        } catch (Exception e) {
+            log("Failed recording compilations: " + e);
+        }
+    }
+
+    private static void log(String message) {
+        System.err.println("[compile-command-metrics] " + message);
+    }
+}
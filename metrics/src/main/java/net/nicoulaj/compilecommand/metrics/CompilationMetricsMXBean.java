@@ -0,0 +1,68 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link CompilationMetrics}.
+ */
+public interface CompilationMetricsMXBean {
+
+    /**
+     * @return the counters of the methods matched by the <code>hotspot_compiler</code> lines, by method. Methods of
+     * lines with a signature and without wildcard are listed even if they were never compiled, the others once they
+     * were compiled or deoptimized.
+     */
+    Map<String, MethodCompilationMetrics> getMethods();
+
+    /**
+     * @param method the method, in the format of the <code>hotspot_compiler</code> lines.
+     * @return the counters of the method, or <code>null</code> if it is not listed in {@link #getMethods()}.
+     */
+    MethodCompilationMetrics getMethod(String method);
+
+    /**
+     * @return the <code>hotspot_compiler</code> lines with a method pattern, that methods are matched against.
+     */
+    String[] getLines();
+
+    /**
+     * @return the number of compilation and deoptimization events received, of any method.
+     */
+    long getEventCount();
+
+    /**
+     * @return the number of compilation and deoptimization events of matched methods.
+     */
+    long getMatchedEventCount();
+
+    /**
+     * @return the number of times the code cache was full, after which the JIT stops compiling.
+     */
+    long getCodeCacheFullCount();
+
+    /**
+     * @return the code heap that was full last, or <code>null</code> if the code cache was never full.
+     */
+    String getCodeCacheFullHeap();
+
+    /**
+     * Reset all counters.
+     */
+    void reset();
+}
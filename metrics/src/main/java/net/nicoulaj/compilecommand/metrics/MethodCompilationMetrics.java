@@ -0,0 +1,158 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.metrics;
+
+/**
+ * Compilation and deoptimization counters of a method matched by a <code>hotspot_compiler</code> line.
+ * <p>Counters are updated by the thread of the recording stream, and a copy is returned to JMX clients.</p>
+ */
+public final class MethodCompilationMetrics {
+
+    private final String method;
+
+    private long compilations;
+
+    private long osrCompilations;
+
+    private long failedCompilations;
+
+    private int compileLevel = -1;
+
+    private int highestCompileLevel = -1;
+
+    private long codeSize;
+
+    private long inlinedBytes;
+
+    private long deoptimizations;
+
+    private String deoptimizationReason;
+
+    MethodCompilationMetrics(String method) {
+        this.method = method;
+    }
+
+    synchronized void compiled(int level, boolean succeeded, boolean osr, long size, long inlined) {
+        if (!succeeded) {
+            failedCompilations++;
+            return;
+        }
+        compilations++;
+        if (osr)
+            osrCompilations++;
+        compileLevel = level;
+        highestCompileLevel = Math.max(highestCompileLevel, level);
+        codeSize = size;
+        inlinedBytes = inlined;
+    }
+
+    synchronized void deoptimized(String reason) {
+        deoptimizations++;
+        deoptimizationReason = reason;
+    }
+
+    synchronized MethodCompilationMetrics copy() {
+        final MethodCompilationMetrics copy = new MethodCompilationMetrics(method);
+        copy.compilations = compilations;
+        copy.osrCompilations = osrCompilations;
+        copy.failedCompilations = failedCompilations;
+        copy.compileLevel = compileLevel;
+        copy.highestCompileLevel = highestCompileLevel;
+        copy.codeSize = codeSize;
+        copy.inlinedBytes = inlinedBytes;
+        copy.deoptimizations = deoptimizations;
+        copy.deoptimizationReason = deoptimizationReason;
+        return copy;
+    }
+
+    /**
+     * @return the method, in the format of the <code>hotspot_compiler</code> lines, for example
+     * <code>net.nicoulaj.Foo::bar (Ljava.lang.String;)V</code>.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the number of successful compilations, including on-stack replacements.
+     */
+    public synchronized long getCompilations() {
+        return compilations;
+    }
+
+    /**
+     * @return the number of successful on-stack replacement compilations.
+     */
+    public synchronized long getOsrCompilations() {
+        return osrCompilations;
+    }
+
+    /**
+     * @return the number of failed compilations.
+     */
+    public synchronized long getFailedCompilations() {
+        return failedCompilations;
+    }
+
+    /**
+     * @return the tier of the last successful compilation, from 1 to 4, or -1 if the method was not compiled.
+     */
+    public synchronized int getCompileLevel() {
+        return compileLevel;
+    }
+
+    /**
+     * @return the highest tier the method was compiled at, or -1 if the method was not compiled.
+     */
+    public synchronized int getHighestCompileLevel() {
+        return highestCompileLevel;
+    }
+
+    /**
+     * @return the size in bytes of the code of the last successful compilation.
+     */
+    public synchronized long getCodeSize() {
+        return codeSize;
+    }
+
+    /**
+     * @return the bytecode size of the methods inlined by the last successful compilation.
+     */
+    public synchronized long getInlinedBytes() {
+        return inlinedBytes;
+    }
+
+    /**
+     * @return the number of deoptimizations of the compiled code of the method.
+     */
+    public synchronized long getDeoptimizations() {
+        return deoptimizations;
+    }
+
+    /**
+     * @return the reason of the last deoptimization, or <code>null</code> if the method was not deoptimized.
+     */
+    public synchronized String getDeoptimizationReason() {
+        return deoptimizationReason;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return method + ": " + compilations + " compilations (" + osrCompilations + " OSR, " + failedCompilations
+               + " failed), level " + compileLevel + ", " + codeSize + " bytes, " + deoptimizations + " deoptimizations";
+    }
+}
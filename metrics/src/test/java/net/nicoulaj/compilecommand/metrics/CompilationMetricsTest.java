@@ -0,0 +1,162 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.metrics;
+
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompilationMetrics}.
+ */
+public class CompilationMetricsTest {
+
+    private static final String FIXTURE = Fixture.class.getName();
+
+    @Test
+    public void testExactLines()
+    {
+        final CompilationMetrics metrics = new CompilationMetrics(Arrays.asList(
+            "quiet",
+            "inline net.foo.A::a (Ljava.lang.String;)I",
+            "dontinline net.foo.A::b ()V"));
+
+        assertEquals(metrics.getLines().length, 2);
+        assertEquals(metrics.getMethods().keySet().toString(),
+                     "[net.foo.A::a (Ljava.lang.String;)I, net.foo.A::b ()V]");
+        assertEquals(metrics.getMethod("net.foo.A::a (Ljava.lang.String;)I").getCompileLevel(), -1);
+
+        metrics.compiled("net/foo/A", "a", "(Ljava/lang/String;)I", 3, true, false, 120, 0);
+        metrics.compiled("net.foo.A", "a", "(Ljava/lang/String;)I", 4, true, true, 400, 35);
+        metrics.compiled("net.foo.A", "a", "(Ljava/lang/String;)I", 4, false, false, 0, 0);
+        metrics.compiled("net.foo.A", "a", "(I)I", 4, true, false, 80, 0);
+        metrics.compiled("net.foo.B", "a", "(Ljava/lang/String;)I", 4, true, false, 80, 0);
+        metrics.deoptimized("net.foo.A", "b", "()V", "unstable_if");
+
+        final MethodCompilationMetrics a = metrics.getMethod("net.foo.A::a (Ljava.lang.String;)I");
+        assertEquals(a.getCompilations(), 2L);
+        assertEquals(a.getOsrCompilations(), 1L);
+        assertEquals(a.getFailedCompilations(), 1L);
+        assertEquals(a.getCompileLevel(), 4);
+        assertEquals(a.getHighestCompileLevel(), 4);
+        assertEquals(a.getCodeSize(), 400L);
+        assertEquals(a.getInlinedBytes(), 35L);
+
+        final MethodCompilationMetrics b = metrics.getMethod("net.foo.A::b ()V");
+        assertEquals(b.getCompilations(), 0L);
+        assertEquals(b.getDeoptimizations(), 1L);
+        assertEquals(b.getDeoptimizationReason(), "unstable_if");
+
+        assertNull(metrics.getMethod("net.foo.A::a (I)I"));
+        assertEquals(metrics.getEventCount(), 6L);
+        assertEquals(metrics.getMatchedEventCount(), 4L);
+
+        metrics.reset();
+        assertEquals(metrics.getMethod("net.foo.A::a (Ljava.lang.String;)I").getCompilations(), 0L);
+        assertEquals(metrics.getEventCount(), 0L);
+    }
+
+    @Test
+    public void testPatterns()
+    {
+        final CompilationMetrics metrics = new CompilationMetrics(Arrays.asList(
+            "inline net.foo.A::*",
+            "option net.foo.B::b intx MaxNodeLimit=100000",
+            "exclude net.bar.*::debug"));
+
+        assertTrue(metrics.getMethods().isEmpty());
+
+        metrics.compiled("net.foo.A", "a", "()V", 1, true, false, 10, 0);
+        metrics.compiled("net.foo.B", "b", "(J)J", 2, true, false, 20, 0);
+        metrics.compiled("net.foo.B", "c", "()V", 2, true, false, 20, 0);
+        metrics.compiled("net.bar.C", "debug", "()V", 3, true, false, 30, 0);
+        metrics.compiled("net.bar.C", "run", "()V", 3, true, false, 30, 0);
+        metrics.compiled("net.bar.C", "run", "()V", 4, true, false, 30, 0);
+
+        final Map<String, MethodCompilationMetrics> methods = metrics.getMethods();
+        assertEquals(methods.keySet().toString(), "[net.bar.C::debug ()V, net.foo.A::a ()V, net.foo.B::b (J)J]");
+        assertEquals(methods.get("net.foo.B::b (J)J").getCompileLevel(), 2);
+        assertEquals(metrics.getMatchedEventCount(), 3L);
+    }
+
+    @Test
+    public void testCodeCacheFull()
+    {
+        final CompilationMetrics metrics = new CompilationMetrics(Arrays.asList("inline net.foo.A::a ()V"));
+        assertNull(metrics.getCodeCacheFullHeap());
+
+        metrics.codeCacheFull("CodeHeap 'non-profiled nmethods'");
+        assertEquals(metrics.getCodeCacheFullCount(), 1L);
+        assertEquals(metrics.getCodeCacheFullHeap(), "CodeHeap 'non-profiled nmethods'");
+    }
+
+    @Test
+    public void testRecording() throws Exception
+    {
+        final String method = FIXTURE + "::work (I)I";
+        final CompilationMetrics metrics = new CompilationMetrics(Arrays.asList("dontinline " + method));
+        metrics.start();
+        try {
+            final long deadline = System.currentTimeMillis() + 60000;
+            int sum = 0;
+            while (metrics.getMethod(method).getCompilations() == 0 && System.currentTimeMillis() < deadline)
+                for (int i = 0; i < 100000; i++)
+                    sum += Fixture.work(i);
+            assertNotNull(metrics.getMethod(method));
+            assertTrue(metrics.getMethod(method).getCompilations() > 0, metrics.getMethod(method) + " " + sum);
+            assertTrue(metrics.getMethod(method).getCodeSize() > 0);
+        } finally {
+            metrics.close();
+        }
+    }
+
+    @Test
+    public void testRegister() throws Exception
+    {
+        final CompilationMetrics metrics = new CompilationMetrics(Arrays.asList("inline net.foo.A::a ()V"));
+        metrics.register();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(CompilationMetrics.OBJECT_NAME);
+        try {
+            final TabularData methods = (TabularData) server.getAttribute(name, "Methods");
+            assertEquals(methods.size(), 1);
+            final CompositeData method = (CompositeData) server.invoke(name, "getMethod", new Object[]{"net.foo.A::a ()V"},
+                                                                       new String[]{String.class.getName()});
+            assertEquals(method.get("compileLevel"), -1);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    static final class Fixture {
+
+        static int work(int i) {
+            return i * 31 + (i >>> 3);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Selects the <code>hotspot_compiler</code> file of a deployment profile and of the running JDK release among the
+ * files written by {@link CompileCommandProcessor}, and prints the JVM option using it, for launcher scripts:
+ * <pre>
+ * java -cp app.jar -Dcompile.command.profile=low-latency net.nicoulaj.compilecommand.CompileCommandLauncher /tmp/hotspot_compiler
+ * </pre>
+ * <p>The profile is read from the <code>compile.command.profile</code> system property. Profiles without file have no
+ * hints of their own, the file without profile is used for them. The file is selected in every classpath root, the
+ * selected files are merged into the output file, and <code>-XX:CompileCommandFile=&lt;output file&gt;</code> is
+ * printed.</p>
+ */
+public final class CompileCommandLauncher {
+
+    /**
+     * The system property holding the deployment profile.
+     */
+    public static final String PROFILE_PROPERTY = "compile.command.profile";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CompileCommandLauncher() {
+    }
+
+    /**
+     * Get the files written for a profile and for the newest release not newer than a JVM release, for instance
+     * <code>META-INF/hotspot_compiler.low-latency-17</code> on JDK 21 if there is no file for JDK 21. The file is
+     * selected for every classpath root on its own, so that the roots written without profiles or releases keep their
+     * hints: the file of the profile and release, else of the profile, else of the release, else the base file.
+     *
+     * @param loader  the class loader.
+     * @param path    the path of the <code>hotspot_compiler</code> files.
+     * @param profile the profile, or <code>null</code> for the hints without profile only.
+     * @param release the JDK feature release of the JVM.
+     * @return the URL of the file selected for every classpath root having one.
+     * @throws IOException if the classpath could not be read.
+     */
+    public static List<URL> getResources(ClassLoader loader, String path, String profile, int release) throws IOException {
+        final List<String> names = new ArrayList<String>();
+        for (String p : profile != null ? asList(path + "." + profile, path) : singletonList(path)) {
+            for (int r = release; r >= 8; r--)
+                names.add(p + "-" + r);
+            names.add(p);
+        }
+
+        // Names are looked up by decreasing priority, the first file found in a root is the one used for that root
+        final Map<String, URL> resources = new LinkedHashMap<String, URL>();
+        for (String name : names) {
+            for (Enumeration<URL> urls = loader.getResources(name); urls.hasMoreElements(); ) {
+                final URL url = urls.nextElement();
+                final String location = url.toExternalForm();
+                final String root = location.endsWith(name) ? location.substring(0, location.length() - name.length()) : location;
+                if (!resources.containsKey(root))
+                    resources.put(root, url);
+            }
+        }
+        return new ArrayList<URL>(resources.values());
+    }
+
+    /**
+     * @return the JDK feature release of the running JVM, for example <code>8</code> or <code>17</code>.
+     */
+    public static int getRuntimeRelease() {
+        final String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    /**
+     * Merge the <code>hotspot_compiler</code> files of the profile and release on the classpath into a file, and
+     * print the JVM option using it.
+     *
+     * @param args the path of the file to write, optionally followed by the path of the files on the classpath.
+     * @throws IOException if a file could not be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java -cp <classpath> [-D" + PROFILE_PROPERTY + "=<profile>] "
+                               + CompileCommandLauncher.class.getName() + " <output file> [" + CompileCommandProcessor.COMPILE_COMMAND_FILE_PATH_DEFAULT + "]");
+            System.exit(1);
+        }
+
+        final List<URL> resources = getResources(CompileCommandLauncher.class.getClassLoader(),
+                                                 args.length > 1 ? args[1] : CompileCommandProcessor.COMPILE_COMMAND_FILE_PATH_DEFAULT,
+                                                 System.getProperty(PROFILE_PROPERTY),
+                                                 getRuntimeRelease());
+
+        final SortedSet<String> lines = new TreeSet<String>();
+        boolean quiet = false;
+        for (URL url : resources) {
+            final InputStream in = url.openStream();
+            try {
+                quiet |= IncrementalCompilationHelper.readLines(new BufferedReader(new InputStreamReader(in, UTF_8)), lines);
+            } finally {
+                in.close();
+            }
+        }
+
+        final File output = new File(args[0]);
+        IncrementalCompilationHelper.writeLines(output, UTF_8, quiet, lines);
+        System.out.println("-XX:CompileCommandFile=" + output.getAbsolutePath());
+    }
+}
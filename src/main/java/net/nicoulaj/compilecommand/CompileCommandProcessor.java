@@ -22,32 +22,58 @@ import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ElementVisitor;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.NoType;
 import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.TypeVisitor;
+import javax.lang.model.util.ElementScanner6;
 import javax.lang.model.util.SimpleElementVisitor6;
 import javax.lang.model.util.SimpleTypeVisitor6;
-import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 import javax.tools.FileObject;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static javax.lang.model.util.ElementFilter.constructorsIn;
+import static javax.lang.model.util.ElementFilter.methodsIn;
+import static javax.lang.model.util.ElementFilter.typesIn;
 import static javax.tools.Diagnostic.Kind.*;
 import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static net.nicoulaj.compilecommand.annotations.TargetCompiler.ALL;
 
 /**
  * {@link Processor} that generates a <code>hotspot_compiler</code> file for using with <code>-XX:CompileCommandFile</code>.
@@ -64,15 +90,108 @@ public final class CompileCommandProcessor extends AbstractProcessor {
     public static final String COMPILE_COMMAND_FILE_PATH_OPTION = "compile.command.file.output.path";
     public static final String COMPILE_COMMAND_FILE_PATH_DEFAULT = "META-INF/hotspot_compiler";
 
+    public static final String COMPILE_COMMAND_DIRECTIVES_PATH_OPTION = "compile.command.directives.output.path";
+
+    /** Default value of <code>-XX:CompilerDirectivesLimit</code>. */
+    private static final int COMPILER_DIRECTIVES_LIMIT = 50;
+
     public static final String COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION = "compile.command.incremental.output";
 
+    public static final String COMPILE_COMMAND_INCREMENTAL_BATCHED_OPTION = "compile.command.incremental.output.batched";
+
+    public static final String COMPILE_COMMAND_COMPACT_OPTION = "compile.command.compact";
+
+    public static final String COMPILE_COMMAND_TARGET_RELEASE_OPTION = "compile.command.target.release";
+
+    public static final String COMPILE_COMMAND_RELEASES_OPTION = "compile.command.releases";
+
+    private static final String QUIET = "quiet";
+
+    private static final Pattern INTRINSIC = Pattern.compile("_[A-Za-z0-9_]+");
+
+    private static final Pattern PROFILE = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private static final Map<String, Class<? extends Annotation>> ANNOTATIONS = new HashMap<String, Class<? extends Annotation>>();
+
+    static {
+        for (Class<? extends Annotation> annotation : asList(Break.class,
+                                                             CompileOnly.class,
+                                                             DontInline.class,
+                                                             Exclude.class,
+                                                             Inline.class,
+                                                             Log.class,
+                                                             Option.class,
+                                                             Options.class,
+                                                             Print.class,
+                                                             Quiet.class,
+                                                             BackgroundCompilation.class,
+                                                             CompileThresholdScaling.class,
+                                                             MaxNodeLimit.class,
+                                                             PrintInlining.class,
+                                                             RepeatCompilation.class,
+                                                             Vectorize.class,
+                                                             Blackhole.class,
+                                                             ControlIntrinsic.class,
+                                                             DisableIntrinsic.class,
+                                                             MemLimit.class,
+                                                             MemStat.class))
+            ANNOTATIONS.put(annotation.getName(), annotation);
+    }
+
+    /**
+     * Annotations that take precedence over a type or package level annotation when found on a method or type.
+     */
+    private static final Map<Class<? extends Annotation>, Class<? extends Annotation>> CONFLICTING_ANNOTATIONS = new HashMap<Class<? extends Annotation>, Class<? extends Annotation>>();
+
+    private static final Map<Class<? extends Annotation>, TypedOption> TYPED_OPTIONS = new HashMap<Class<? extends Annotation>, TypedOption>();
+
+    static {
+        TYPED_OPTIONS.put(BackgroundCompilation.class, new TypedOption("bool", "BackgroundCompilation", null, null));
+        TYPED_OPTIONS.put(CompileThresholdScaling.class, new TypedOption("double", "CompileThresholdScaling", 0.0, Double.MAX_VALUE));
+        TYPED_OPTIONS.put(MaxNodeLimit.class, new TypedOption("intx", "MaxNodeLimit", 1000, Integer.MAX_VALUE / 3));
+        TYPED_OPTIONS.put(PrintInlining.class, new TypedOption("bool", "PrintInlining", null, null));
+        TYPED_OPTIONS.put(RepeatCompilation.class, new TypedOption("intx", "RepeatCompilation", 0, Integer.MAX_VALUE));
+        TYPED_OPTIONS.put(Vectorize.class, new TypedOption("bool", "Vectorize", null, null));
+
+        CONFLICTING_ANNOTATIONS.put(Inline.class, DontInline.class);
+        CONFLICTING_ANNOTATIONS.put(DontInline.class, Inline.class);
+        for (Class<? extends Annotation> annotation : TYPED_OPTIONS.keySet())
+            CONFLICTING_ANNOTATIONS.put(annotation, annotation);
+        for (Class<? extends Annotation> annotation : asList(ControlIntrinsic.class, DisableIntrinsic.class, MemLimit.class, MemStat.class))
+            CONFLICTING_ANNOTATIONS.put(annotation, annotation);
+    }
+
     private String compileCommandsDir;
+    private boolean batched;
     private String charset;
+    private String directivesPath;
+    private int targetRelease;
+    private List<Integer> releases;
+
+    /**
+     * The profiles of the element whose annotations are being processed, empty for the base file.
+     */
+    private List<String> profiles = Collections.emptyList();
 
     private final SortedSet<Line> lines;
 
+    private final SortedSet<Line> fragment;
+
+    private final ElementScanner6<Void, Void> scanner;
+
+    private final ElementVisitor<String, Void> descriptorVisitor;
+
+    private final TypeVisitor<String, Void> signatureVisitor;
+
+    private final Map<Element, String> typeSignatures;
+
     public CompileCommandProcessor() {
         lines = new TreeSet<Line>();
+        fragment = new TreeSet<Line>();
+        scanner = new AnnotatedElementScanner();
+        descriptorVisitor = new DescriptorVisitor();
+        signatureVisitor = new SignatureVisitor();
+        typeSignatures = new HashMap<Element, String>();
     }
 
     @Override
@@ -82,18 +201,7 @@ public final class CompileCommandProcessor extends AbstractProcessor {
 
     @Override
     public Set<String> getSupportedAnnotationTypes() {
-        return new HashSet<String>(asList(
-                Break.class.getName(),
-                CompileOnly.class.getName(),
-                DontInline.class.getName(),
-                Exclude.class.getName(),
-                Inline.class.getName(),
-                Log.class.getName(),
-                Option.class.getName(),
-                Options.class.getName(),
-                Print.class.getName(),
-                Quiet.class.getName()
-        ));
+        return new HashSet<String>(ANNOTATIONS.keySet());
     }
 
     @Override
@@ -102,7 +210,12 @@ public final class CompileCommandProcessor extends AbstractProcessor {
         Set<String> supportedOptions = new HashSet<String>();
         supportedOptions.add(COMPILE_COMMAND_FILE_CHARSET_OPTION);
         supportedOptions.add(COMPILE_COMMAND_FILE_PATH_OPTION);
+        supportedOptions.add(COMPILE_COMMAND_DIRECTIVES_PATH_OPTION);
         supportedOptions.add(COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION);
+        supportedOptions.add(COMPILE_COMMAND_INCREMENTAL_BATCHED_OPTION);
+        supportedOptions.add(COMPILE_COMMAND_COMPACT_OPTION);
+        supportedOptions.add(COMPILE_COMMAND_TARGET_RELEASE_OPTION);
+        supportedOptions.add(COMPILE_COMMAND_RELEASES_OPTION);
         return supportedOptions;
     }
 
@@ -112,108 +225,295 @@ public final class CompileCommandProcessor extends AbstractProcessor {
         message(NOTE, "Processing compiler hints annotations");
 
         this.compileCommandsDir = processingEnv.getOptions().get(COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION);
+        this.batched = Boolean.parseBoolean(processingEnv.getOptions().get(COMPILE_COMMAND_INCREMENTAL_BATCHED_OPTION));
         this.charset = processingEnv.getOptions().get(COMPILE_COMMAND_FILE_CHARSET_OPTION);
         if (this.charset == null)
             this.charset = COMPILE_COMMAND_FILE_CHARSET_DEFAULT;
+        this.directivesPath = processingEnv.getOptions().get(COMPILE_COMMAND_DIRECTIVES_PATH_OPTION);
 
-        processBreak(roundEnv);
-        processCompileOnly(roundEnv);
-        processDontInline(roundEnv);
-        processExclude(roundEnv);
-        processInline(roundEnv);
-        processLog(roundEnv);
-        processOptions(roundEnv);
-        processOption(roundEnv);
-        processPrint(roundEnv);
-        processQuiet(roundEnv);
+        final String release = processingEnv.getOptions().get(COMPILE_COMMAND_TARGET_RELEASE_OPTION);
+        final String releaseList = processingEnv.getOptions().get(COMPILE_COMMAND_RELEASES_OPTION);
+        this.releases = new ArrayList<Integer>();
+        try {
+            if (releaseList != null)
+                for (String r : releaseList.split(","))
+                    releases.add(Integer.parseInt(r.trim()));
+        } catch (NumberFormatException e) {
+            message(ERROR, "Option %s must be a comma separated list of JDK feature release numbers, for example 11,17,21, not %s",
+                    COMPILE_COMMAND_RELEASES_OPTION, releaseList);
+            return true;
+        }
+        try {
+            // Hints are left out of the files of the releases that do not accept them, only warn if no release does
+            this.targetRelease = release != null ? Integer.parseInt(release)
+                                 : !releases.isEmpty() ? Collections.max(releases)
+                                 : processingEnv.getSourceVersion().ordinal();
+        } catch (NumberFormatException e) {
+            message(ERROR, "Option %s must be a JDK feature release number, for example 17, not %s",
+                    COMPILE_COMMAND_TARGET_RELEASE_OPTION, release);
+            return true;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            scanner.scan(element);
+            if (!fragment.isEmpty()) {
+                writeFragment(makeFileName(element instanceof PackageElement ? "package" : "type",
+                                           element.accept(descriptorVisitor, null)),
+                              fragment,
+                              element);
+                fragment.clear();
+            }
+        }
 
         if (!roundEnv.processingOver())
             return true;
 
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(COMPILE_COMMAND_COMPACT_OPTION))) {
+            if (compileCommandsDir != null)
+                message(WARNING, "Option %s is not supported with %s, fragments are not compacted.",
+                        COMPILE_COMMAND_COMPACT_OPTION, COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION);
+            else
+                compactLines();
+        }
+
         final String outputPath = processingEnv.getOptions().get(COMPILE_COMMAND_FILE_PATH_OPTION);
-        generateCompileCommandFile(
-            outputPath != null ? outputPath : COMPILE_COMMAND_FILE_PATH_DEFAULT
-        );
+        final String path = outputPath != null ? outputPath : COMPILE_COMMAND_FILE_PATH_DEFAULT;
+        generateCompileCommandFile(path);
+
+        if (!releases.isEmpty() && compileCommandsDir != null) {
+            message(WARNING, "Option %s is not supported with %s, no per release file written.",
+                    COMPILE_COMMAND_RELEASES_OPTION, COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION);
+        } else if (compileCommandsDir == null) {
+            final SortedSet<String> lineProfiles = new TreeSet<String>();
+            for (Line line : lines)
+                if (line.profile != null)
+                    lineProfiles.add(line.profile);
+            for (String profile : lineProfiles)
+                generateCompileCommandFile(path, profile, null);
+            for (Integer r : releases) {
+                generateCompileCommandFile(path, null, r);
+                for (String profile : lineProfiles)
+                    generateCompileCommandFile(path, profile, r);
+            }
+        }
+
+        if (directivesPath != null)
+            generateCompilerDirectivesFile(directivesPath);
 
         message(NOTE, "Done processing compiler hints annotations");
 
         return true;
     }
 
-    private void processBreak(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(Break.class, roundEnv);
-    }
+    private void processAnnotations(final Element element) {
+        final List<? extends AnnotationMirror> mirrors = element.getAnnotationMirrors();
+        if (mirrors.isEmpty())
+            return;
 
-    private void processCompileOnly(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(CompileOnly.class, roundEnv);
-    }
+        String descriptor = null;
+        for (AnnotationMirror mirror : mirrors) {
+            final Class<? extends Annotation> annotation =
+                ANNOTATIONS.get(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString());
+            if (annotation == null)
+                continue;
+
+            if (descriptor == null) {
+                descriptor = element.accept(descriptorVisitor, null);
+                profiles = getProfiles(element);
+                if (profiles == null)
+                    return;
+            }
 
-    private void processDontInline(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(DontInline.class, roundEnv);
-    }
+            if (annotation == Quiet.class) {
+                addLine(new Line(QUIET, descriptor, Quiet.class, ALL), element);
+                continue;
+            }
 
-    private void processExclude(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(Exclude.class, roundEnv);
+            final List<String> descriptors = element instanceof ExecutableElement
+                                             ? singletonList(descriptor)
+                                             : getWildcardDescriptors(element, annotation);
+            if (annotation == Option.class)
+                processOption(element, descriptors, element.getAnnotation(Option.class).value(), getCompiler(mirror));
+            else if (annotation == Options.class)
+                for (String option : element.getAnnotation(Options.class).value())
+                    processOption(element, descriptors, option, getCompiler(mirror));
+            else if (TYPED_OPTIONS.containsKey(annotation))
+                processTypedOption(element, descriptors, mirror, annotation, TYPED_OPTIONS.get(annotation));
+            else if (annotation == Blackhole.class)
+                processBlackhole((ExecutableElement) element, descriptor);
+            else if (annotation == DisableIntrinsic.class)
+                processIntrinsics(element, descriptors, annotation, "DisableIntrinsic",
+                                  asList(element.getAnnotation(DisableIntrinsic.class).value()), getCompiler(mirror));
+            else if (annotation == ControlIntrinsic.class)
+                processControlIntrinsic(element, descriptors, element.getAnnotation(ControlIntrinsic.class), getCompiler(mirror));
+            else if (annotation == MemLimit.class)
+                processMemLimit(element, descriptors, element.getAnnotation(MemLimit.class));
+            else if (annotation == MemStat.class)
+                processMemStat(element, descriptors, element.getAnnotation(MemStat.class));
+            else
+                for (String d : descriptors)
+                    addLine(new Line(d, annotation, getCompiler(mirror)), element);
+        }
     }
 
-    private void processInline(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(Inline.class, roundEnv);
+    private void processOption(Element element, List<String> descriptors, String option, TargetCompiler compiler) {
+        for (String descriptor : descriptors)
+            addLine(new Line(descriptor + " " + option, Option.class, compiler), element);
     }
 
-    private void processLog(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(Log.class, roundEnv);
+    private void processTypedOption(Element element, List<String> descriptors, AnnotationMirror mirror,
+                                    Class<? extends Annotation> annotation, TypedOption option) {
+        Object value = null;
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+            : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet())
+            if ("value".equals(entry.getKey().getSimpleName().toString()))
+                value = entry.getValue().getValue();
+
+        if (value instanceof Number) {
+            final double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || number < option.min.doubleValue() || number > option.max.doubleValue()) {
+                message(ERROR, element, "@%s value %s is out of range [%s, %s]",
+                        annotation.getSimpleName(), value, option.min, option.max);
+                return;
+            }
+        }
+
+        for (String descriptor : descriptors)
+            addLine(new Line("option " + descriptor + " " + option.type + " " + option.name + " " + value, descriptor, annotation, getCompiler(mirror)),
+                    element);
     }
 
-    private void processOptions(RoundEnvironment roundEnv) {
-        for (Element element : roundEnv.getElementsAnnotatedWith(Options.class))
-            for (String option : element.getAnnotation(Options.class).value())
-                processOption(element, option, roundEnv);
+    /**
+     * Get the profiles of the nearest <code>&#64;Profile</code> annotation found on an element or its enclosing
+     * elements, or <code>null</code> if it has an invalid profile name.
+     */
+    private List<String> getProfiles(Element element) {
+        for (Element e = element; e != null; e = e.getEnclosingElement()) {
+            final Profile profile = e.getAnnotation(Profile.class);
+            if (profile == null)
+                continue;
+            for (String name : profile.value()) {
+                if (!PROFILE.matcher(name).matches()) {
+                    message(ERROR, e, "@Profile value \"%s\" must only contain letters, digits, _ and -", name);
+                    return null;
+                }
+            }
+            return asList(profile.value());
+        }
+        return Collections.emptyList();
     }
 
-    private void processOption(RoundEnvironment roundEnv) {
-        for (Element element : roundEnv.getElementsAnnotatedWith(Option.class))
-            processOption(element, element.getAnnotation(Option.class).value(), roundEnv);
+    private void processBlackhole(ExecutableElement element, String descriptor) {
+        if (!element.getModifiers().contains(Modifier.STATIC) || element.getReturnType().getKind() != TypeKind.VOID) {
+            message(ERROR, element, "@Blackhole method must be static and return void");
+            return;
+        }
+        addLine(new Line(descriptor, Blackhole.class, ALL), element);
     }
 
-    private void processOption(final Element element, String option, RoundEnvironment roundEnv) {
-        addLine(element.accept(new SimpleElementVisitor6<Line, String>() {
+    /**
+     * Add a <code>ccstrlist</code> option listing intrinsic identifiers, optionally prefixed by <code>+</code> or
+     * <code>-</code>. The identifiers are separated by spaces, as JDK 9 to 15 do not accept commas.
+     */
+    private void processIntrinsics(Element element, List<String> descriptors, Class<? extends Annotation> annotation,
+                                   String option, List<String> intrinsics, TargetCompiler compiler) {
+        if (intrinsics.isEmpty()) {
+            message(ERROR, element, "@%s must list at least one intrinsic", annotation.getSimpleName());
+            return;
+        }
 
-            @Override
-            public Line visitExecutable(final ExecutableElement e, final String option) {
-                return new Line(getDescriptor(e) + " " + option, Option.class);
+        final StringBuilder value = new StringBuilder();
+        for (String intrinsic : intrinsics) {
+            if (!INTRINSIC.matcher(intrinsic.startsWith("+") || intrinsic.startsWith("-") ? intrinsic.substring(1) : intrinsic).matches()) {
+                message(ERROR, element, "@%s value \"%s\" is not an intrinsic identifier, for example _hashCode",
+                        annotation.getSimpleName(), intrinsic);
+                return;
             }
+            value.append(' ').append(intrinsic);
+        }
 
-        }, option), element);
+        for (String descriptor : descriptors)
+            addLine(new Line("option " + descriptor + " ccstrlist " + option + value, descriptor, annotation, compiler), element);
     }
 
-    private void processPrint(RoundEnvironment roundEnv) {
-        processSimpleMethodAnnotation(Print.class, roundEnv);
+    private void processControlIntrinsic(Element element, List<String> descriptors, ControlIntrinsic annotation, TargetCompiler compiler) {
+        final List<String> intrinsics = new ArrayList<String>();
+        for (String intrinsic : annotation.enable())
+            intrinsics.add("+" + intrinsic);
+        for (String intrinsic : annotation.disable())
+            intrinsics.add("-" + intrinsic);
+        processIntrinsics(element, descriptors, ControlIntrinsic.class, "ControlIntrinsic", intrinsics, compiler);
     }
 
-    private void processQuiet(RoundEnvironment roundEnv) {
-        for (Element element : roundEnv.getElementsAnnotatedWith(Quiet.class))
-            addLine(element.accept(new SimpleElementVisitor6<Line, RoundEnvironment>() {
-                @Override
-                public Line visitType(TypeElement e, RoundEnvironment roundEnvironment)
-                {
-                    return new Line("quiet", getDescriptor(e), Quiet.class);
-                }
+    private void processMemLimit(Element element, List<String> descriptors, MemLimit annotation) {
+        if (annotation.value() < 0) {
+            message(ERROR, element, "@MemLimit value %d is out of range [0, %d]", annotation.value(), Long.MAX_VALUE);
+            return;
+        }
+        for (String descriptor : descriptors)
+            addLine(new Line("MemLimit " + descriptor + " " + annotation.value() + (annotation.crash() ? "~crash" : "~stop"),
+                             descriptor, MemLimit.class, ALL),
+                    element);
+    }
 
-                @Override
-                public Line visitExecutable(final ExecutableElement e, final RoundEnvironment roundEnvironment) {
-                    return new Line("quiet", getDescriptor(e), Quiet.class);
-                }
-            }, roundEnv), element);
+    private void processMemStat(Element element, List<String> descriptors, MemStat annotation) {
+        for (String descriptor : descriptors)
+            addLine(new Line("MemStat " + descriptor + (annotation.print() ? " print" : " collect"), descriptor, MemStat.class, ALL),
+                    element);
     }
 
-    private void processSimpleMethodAnnotation(final Class<? extends Annotation> clazz, RoundEnvironment roundEnv) {
-        for (Element element : roundEnv.getElementsAnnotatedWith(clazz))
-            addLine(element.accept(new SimpleElementVisitor6<Line, RoundEnvironment>() {
-                @Override
-                public Line visitExecutable(final ExecutableElement e, final RoundEnvironment roundEnvironment) {
-                    return new Line(getDescriptor(e), clazz);
-                }
-            }, roundEnv), element);
+    /**
+     * Get the method patterns a type or package level annotation expands to: <code>Type::*</code> for each type, or
+     * one pattern per method of the type if some of its methods have a conflicting annotation. Package level
+     * annotations apply to the nested types too, as a <code>package.*</code> pattern would also match sub-packages.
+     */
+    private List<String> getWildcardDescriptors(Element element, Class<? extends Annotation> annotation) {
+        final List<String> descriptors = new ArrayList<String>();
+        if (element instanceof PackageElement) {
+            // The fragment only originates from the package, Gradle does not rewrite it when a type of the package changes
+            if (compileCommandsDir != null)
+                message(WARNING, element, "@%s on a package is expanded to the types of the package when writing incremental fragments, "
+                                          + "recompile the package when its types change",
+                        annotation.getSimpleName());
+            for (TypeElement type : typesIn(element.getEnclosedElements()))
+                addWildcardDescriptors(type, annotation, descriptors, true);
+        } else if (element instanceof TypeElement) {
+            addWildcardDescriptors((TypeElement) element, annotation, descriptors, false);
+        }
+        return descriptors;
+    }
+
+    private void addWildcardDescriptors(TypeElement type, Class<? extends Annotation> annotation, List<String> descriptors, boolean nested) {
+        final Class<? extends Annotation> conflicting = CONFLICTING_ANNOTATIONS.get(annotation);
+        if (!nested || conflicting == null || type.getAnnotation(conflicting) == null) {
+            final List<ExecutableElement> executables = new ArrayList<ExecutableElement>();
+            executables.addAll(constructorsIn(type.getEnclosedElements()));
+            executables.addAll(methodsIn(type.getEnclosedElements()));
+
+            boolean conflict = false;
+            if (conflicting != null)
+                for (ExecutableElement executable : executables)
+                    conflict |= executable.getAnnotation(conflicting) != null;
+
+            if (conflict) {
+                for (ExecutableElement executable : executables)
+                    if (executable.getAnnotation(conflicting) == null)
+                        descriptors.add(getDescriptor(executable));
+            } else {
+                descriptors.add(getDescriptor(type) + "::*");
+            }
+        }
+
+        if (nested)
+            for (TypeElement member : typesIn(type.getEnclosedElements()))
+                addWildcardDescriptors(member, annotation, descriptors, true);
+    }
+
+    private static TargetCompiler getCompiler(AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet())
+            if ("compiler".equals(value.getKey().getSimpleName().toString()))
+                return TargetCompiler.valueOf(((VariableElement) value.getValue().getValue()).getSimpleName().toString());
+        return ALL;
     }
 
     private String getDescriptor(TypeElement element) {
@@ -227,69 +527,156 @@ public final class CompileCommandProcessor extends AbstractProcessor {
     }
 
     private String getSignature(ExecutableElement element) {
-        final Types types = processingEnv.getTypeUtils();
         final StringBuilder sb = new StringBuilder("(");
+        if (element.getKind() == ElementKind.CONSTRUCTOR)
+            sb.append(getImplicitParameters((TypeElement) element.getEnclosingElement()));
         for (VariableElement p : element.getParameters())
-            sb.append(getSignature(types.erasure(p.asType())));
+            sb.append(getSignature(p.asType()));
         return sb.append(")")
-                 .append(getSignature(types.erasure(element.getReturnType())))
+                 .append(getSignature(element.getReturnType()))
                  .toString();
     }
 
+    /**
+     * Get the signature of the parameters the compiler adds to the constructors of a type: the name and ordinal of
+     * enum constants, or the enclosing instance of inner classes.
+     */
+    private String getImplicitParameters(TypeElement type) {
+        if (type.getKind() == ElementKind.ENUM)
+            return "Ljava.lang.String;I";
+        if (type.getKind() == ElementKind.CLASS
+            && type.getNestingKind() == NestingKind.MEMBER
+            && !type.getModifiers().contains(Modifier.STATIC)
+            && type.getEnclosingElement().getKind().isClass())
+            return getSignature(type.getEnclosingElement().asType());
+        return "";
+    }
+
     private String getSignature(TypeMirror type) {
-        return type.accept(new SimpleTypeVisitor6<String, Void>() {
-
-            @Override
-            public String visitPrimitive(final PrimitiveType t, final Void dummy) {
-                final String type = t.toString();
-                if ("boolean".equals(type)) return "Z";
-                if ("short".equals(type)) return "S";
-                if ("int".equals(type)) return "I";
-                if ("long".equals(type)) return "J";
-                if ("float".equals(type)) return "F";
-                if ("double".equals(type)) return "D";
-                if ("char".equals(type)) return "C";
-                if ("byte".equals(type)) return "B";
-                return super.visitPrimitive(t, dummy);
-            }
+        return type.accept(signatureVisitor, null);
+    }
 
-            @Override public String visitNoType(final NoType t, final Void aVoid) {
-                return "V";
-            }
+    private void addLine(Line line, Element element) {
+        final int release = CompileCommandReleases.getMinimumRelease(line.line);
+        if (release > targetRelease)
+            message(WARNING, element, "Hint \"%s\" requires JDK %d, the targeted release is %d (option %s)",
+                    line.line, release, targetRelease, COMPILE_COMMAND_TARGET_RELEASE_OPTION);
+
+        final List<Line> profileLines = new ArrayList<Line>();
+        for (String profile : profiles)
+            profileLines.add(new Line(line.line, line.descriptor, line.annotation, line.compiler, profile));
+
+        for (Line l : profileLines.isEmpty() ? singletonList(line) : profileLines) {
+            lines.add(l);
+            if (l.profile != null && compileCommandsDir != null)
+                message(WARNING, "Hint \"%s\" for profile %s can not be written to incremental fragments", l.line, l.profile);
+            else if (l.compiler != ALL && compileCommandsDir != null)
+                message(WARNING, "Hint \"%s\" for %s only can not be written to incremental fragments", l.line, l.compiler);
+            else if (compileCommandsDir != null && batched)
+                fragment.add(l);
+            else if (compileCommandsDir != null)
+                writeFragment(makeFileName(l.annotation.getSimpleName().toLowerCase(), l.descriptor),
+                              singleton(l),
+                              element);
+        }
+    }
 
-            @Override
-            public String visitArray(final ArrayType t, final Void aVoid) {
-                return "[" + getSignature(t.getComponentType());
-            }
+    /**
+     * Replace the lines of all the overloads of a method carrying the same hint by a single line without signature.
+     * <p>
+     * A line is only compacted if the pattern without signature can not match any other method: all the methods of the
+     * type with that name must carry the hint, and no supertype may declare a method with that name and another
+     * signature, as the compiler could generate a bridge method for it in the type. Constructors are left as is, as
+     * the compiler can add synthetic constructors, and so are type level wildcards, as lambda bodies and static
+     * initializers are compiled to methods that are not visible here.
+     */
+    private void compactLines() {
+        final Map<String, List<Line>> overloads = new HashMap<String, List<Line>>();
+        for (Line line : lines) {
+            final String[] tokens = line.line.split(" ", 4);
+            if (line.annotation == Quiet.class || tokens.length < 3 || !tokens[2].startsWith("(")
+                || !tokens[1].contains("::") || tokens[1].endsWith("::<init>"))
+                continue;
+            final String key = line.profile + " " + line.compiler + " " + tokens[0] + " " + tokens[1] + (tokens.length > 3 ? " " + tokens[3] : "");
+            List<Line> group = overloads.get(key);
+            if (group == null)
+                overloads.put(key, group = new ArrayList<Line>());
+            group.add(line);
+        }
 
-            @Override
-            protected String defaultAction(final TypeMirror e, final Void aVoid) {
-                return "L" + e.toString() + ";";
-            }
-        }, null);
+        int saved = 0;
+        for (Map.Entry<String, List<Line>> entry : overloads.entrySet()) {
+            final List<Line> group = entry.getValue();
+            if (group.size() < 2)
+                continue;
+
+            final String[] tokens = group.get(0).line.split(" ", 4);
+            final Set<String> signatures = new HashSet<String>();
+            for (Line line : group)
+                signatures.add(line.line.split(" ", 4)[2]);
+            if (!signatures.equals(getOverloadSignatures(tokens[1])))
+                continue;
+
+            lines.removeAll(group);
+            lines.add(new Line(tokens[0] + " " + tokens[1] + (tokens.length > 3 ? " " + tokens[3] : ""),
+                               tokens[1], group.get(0).annotation, group.get(0).compiler, group.get(0).profile));
+            saved += group.size() - 1;
+        }
+
+        message(NOTE, "Compact mode saved %d lines", saved);
     }
 
-    private void addLine(Line line, Element element) {
-        lines.add(line);
-        if (compileCommandsDir != null) {
-            String p = compileCommandsDir + "/" + makeFileName(line);
-            PrintWriter pw = null;
-            try {
-                final FileObject file = processingEnv.getFiler().createResource(CLASS_OUTPUT, "", p, element);
-                pw = new PrintWriter(new OutputStreamWriter(file.openOutputStream(), charset));
+    /**
+     * Get the signatures of the methods matching a <code>Type::method</code> pattern, or <code>null</code> if the
+     * type can not be resolved or if a supertype declares a method with the same name and another signature.
+     */
+    private Set<String> getOverloadSignatures(String pattern) {
+        final int separator = pattern.indexOf("::");
+        final String binaryName = pattern.substring(0, separator);
+        final String name = pattern.substring(separator + 2);
+
+        final TypeElement type = processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+        if (type == null || !binaryName.equals(getDescriptor(type)))
+            return null;
+
+        final Set<String> signatures = new HashSet<String>();
+        for (ExecutableElement method : methodsIn(type.getEnclosedElements()))
+            if (method.getSimpleName().contentEquals(name))
+                signatures.add(getSignature(method));
+
+        final List<TypeMirror> supertypes = new ArrayList<TypeMirror>(processingEnv.getTypeUtils().directSupertypes(type.asType()));
+        for (int i = 0; i < supertypes.size(); i++) {
+            final Element supertype = processingEnv.getTypeUtils().asElement(supertypes.get(i));
+            if (supertype == null)
+                continue;
+            for (ExecutableElement method : methodsIn(supertype.getEnclosedElements()))
+                if (method.getSimpleName().contentEquals(name) && !signatures.contains(getSignature(method)))
+                    return null;
+            supertypes.addAll(processingEnv.getTypeUtils().directSupertypes(supertypes.get(i)));
+        }
+
+        return signatures;
+    }
+
+    private void writeFragment(String fileName, Collection<Line> fragmentLines, Element element) {
+        String p = compileCommandsDir + "/" + fileName;
+        PrintWriter pw = null;
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(CLASS_OUTPUT, "", p, element);
+            pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(file.openOutputStream(), charset)));
+            for (Line line : fragmentLines)
                 pw.println(line.line);
-                pw.flush();
-            } catch (IOException e) {
-                throw new RuntimeException("Failed writing incremental-compile-compatible fragment at " + p, e);
-            } finally {
-                if (pw != null)
-                    pw.close();
-            }
+            pw.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed writing incremental-compile-compatible fragment at " + p, e);
+        } finally {
+            if (pw != null)
+                pw.close();
         }
     }
 
-    private String makeFileName(Line line) {
-        String fn = line.annotation.getSimpleName().toLowerCase() + '-' + line.descriptor;
+    private String makeFileName(String prefix, String descriptor) {
+        String fn = prefix + '-' + descriptor;
         int l = fn.length();
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < l; i++) {
@@ -315,6 +702,20 @@ public final class CompileCommandProcessor extends AbstractProcessor {
             pw = new PrintWriter(new OutputStreamWriter(file.openOutputStream(), charset));
             boolean quiet = false;
             for (Line value : lines) {
+                if (value.profile != null)
+                    continue;
+
+                if (value.compiler != ALL) {
+                    // Not a problem when the hint is written to the compiler directives file, which is also generated
+                    if (directivesPath != null)
+                        message(NOTE, "Hint \"%s\" for %s only not written to %s, only to %s",
+                                value.line, value.compiler, path, directivesPath);
+                    else
+                        message(WARNING, "Hint \"%s\" for %s only can not be written to %s, only to the compiler directives file (option %s)",
+                                value.line, value.compiler, path, COMPILE_COMMAND_DIRECTIVES_PATH_OPTION);
+                    continue;
+                }
+
                 if (value.annotation != Quiet.class) {
                     pw.println(value.line);
                     continue;
@@ -333,23 +734,251 @@ public final class CompileCommandProcessor extends AbstractProcessor {
         }
     }
 
+    /**
+     * Write the lines of a profile to <code>path.profile</code>, the lines without profile included, and the lines
+     * accepted by a JDK release to <code>path-release</code>, translated for the release if needed, see
+     * {@link CompileCommandReleases}. Hints for a single compiler are left out, as in the main file. They are reported
+     * once, by the main file for the hints without profile and by the file of their profile without release.
+     *
+     * @param profile the profile, or <code>null</code> for the lines without profile only.
+     * @param release the JDK feature release, or <code>null</code> for all the lines.
+     */
+    private void generateCompileCommandFile(String path, String profile, Integer release) {
+        final String releasePath = path + (profile != null ? "." + profile : "") + (release != null ? "-" + release : "");
+        final SortedSet<String> releaseLines = new TreeSet<String>();
+        boolean quiet = false;
+        int skipped = 0;
+        for (Line line : lines) {
+            if (line.profile != null && !line.profile.equals(profile))
+                continue;
+            if (line.annotation == Quiet.class) {
+                quiet = true;
+            } else if (line.compiler != ALL) {
+                // Compiler directives have no profiles, so these hints are not written anywhere
+                if (line.profile != null && release == null)
+                    message(WARNING, "Hint \"%s\" for %s only and profile %s can not be written to %s, nor to the compiler directives file",
+                            line.line, line.compiler, line.profile, releasePath);
+            } else {
+                final String translated = release != null ? CompileCommandReleases.translate(line.line, release) : line.line;
+                if (translated != null)
+                    releaseLines.add(translated);
+                else
+                    skipped++;
+            }
+        }
+
+        if (release != null)
+            message(NOTE, "Writing compiler command file for JDK %d at %s, %d hints not supported by this release left out",
+                    release, releasePath, skipped);
+        else
+            message(NOTE, "Writing compiler command file for profile %s at %s", profile, releasePath);
+        PrintWriter pw = null;
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(CLASS_OUTPUT, "", releasePath);
+            pw = new PrintWriter(new OutputStreamWriter(file.openOutputStream(), charset));
+            if (quiet)
+                pw.println(QUIET);
+            for (String line : releaseLines)
+                pw.println(line);
+            pw.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed writing compiler command file at " + releasePath, e);
+        } finally {
+            if (pw != null)
+                pw.close();
+        }
+    }
+
+    private void generateCompilerDirectivesFile(String path) {
+        if (compileCommandsDir != null) {
+            message(WARNING, "Option %s is not supported with %s, no compiler directives file written.",
+                    COMPILE_COMMAND_DIRECTIVES_PATH_OPTION, COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION);
+            return;
+        }
+
+        final CompilerDirectives directives = new CompilerDirectives();
+        for (Line line : lines)
+            if (line.profile == null)
+                directives.add(line.line, line.compiler);
+            else
+                message(WARNING, "Hint \"%s\" for profile %s not written to %s, compiler directives have no profiles",
+                        line.line, line.profile, path);
+        for (String line : directives.getSkipped())
+            message(WARNING, "No compiler directive equivalent for \"%s\", not written to %s", line, path);
+        if (directives.size() > COMPILER_DIRECTIVES_LIMIT)
+            message(WARNING, "%d compiler directives written to %s, more than the default -XX:CompilerDirectivesLimit=%d",
+                    directives.size(), path, COMPILER_DIRECTIVES_LIMIT);
+
+        message(NOTE, "Writing compiler directives file at %s", path);
+        PrintWriter pw = null;
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(CLASS_OUTPUT, "", path);
+            pw = new PrintWriter(new OutputStreamWriter(file.openOutputStream(), charset));
+            pw.print(directives.toJson());
+            pw.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed writing compiler directives file at " + path, e);
+        } finally {
+            if (pw != null)
+                pw.close();
+        }
+    }
+
     private void message(Diagnostic.Kind level, String msg, Object... args) {
         processingEnv.getMessager().printMessage(level, format(msg, args));
     }
 
+    private void message(Diagnostic.Kind level, Element element, String msg, Object... args) {
+        processingEnv.getMessager().printMessage(level, format(msg, args), element);
+    }
+
+    /**
+     * Walks a root element and its members once, processing every supported annotation found on the way.
+     */
+    private final class AnnotatedElementScanner extends ElementScanner6<Void, Void> {
+
+        @Override
+        public Void visitPackage(PackageElement e, Void p) {
+            processAnnotations(e);
+            return null;
+        }
+
+        @Override
+        public Void visitType(TypeElement e, Void p) {
+            processAnnotations(e);
+            return super.visitType(e, p);
+        }
+
+        @Override
+        public Void visitExecutable(ExecutableElement e, Void p) {
+            processAnnotations(e);
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(VariableElement e, Void p) {
+            return null;
+        }
+
+        @Override
+        public Void visitTypeParameter(TypeParameterElement e, Void p) {
+            return null;
+        }
+
+        @Override
+        public Void visitUnknown(Element e, Void p) {
+            return null;
+        }
+    }
+
+    private final class DescriptorVisitor extends SimpleElementVisitor6<String, Void> {
+
+        @Override
+        public String visitPackage(PackageElement e, Void p) {
+            return e.getQualifiedName().toString();
+        }
+
+        @Override
+        public String visitType(TypeElement e, Void p) {
+            return getDescriptor(e);
+        }
+
+        @Override
+        public String visitExecutable(ExecutableElement e, Void p) {
+            return getDescriptor(e);
+        }
+    }
+
+    /**
+     * Computes the JVM signature of a type, memoizing the signature of declared types by their element.
+     */
+    private final class SignatureVisitor extends SimpleTypeVisitor6<String, Void> {
+
+        @Override
+        public String visitPrimitive(PrimitiveType t, Void p) {
+            switch (t.getKind()) {
+                case BOOLEAN: return "Z";
+                case SHORT: return "S";
+                case INT: return "I";
+                case LONG: return "J";
+                case FLOAT: return "F";
+                case DOUBLE: return "D";
+                case CHAR: return "C";
+                case BYTE: return "B";
+                default: return super.visitPrimitive(t, p);
+            }
+        }
+
+        @Override
+        public String visitNoType(NoType t, Void p) {
+            return "V";
+        }
+
+        @Override
+        public String visitArray(ArrayType t, Void p) {
+            return "[" + getSignature(t.getComponentType());
+        }
+
+        @Override
+        public String visitDeclared(DeclaredType t, Void p) {
+            final Element element = t.asElement();
+            String signature = typeSignatures.get(element);
+            if (signature == null) {
+                signature = "L" + getDescriptor((TypeElement) element) + ";";
+                typeSignatures.put(element, signature);
+            }
+            return signature;
+        }
+
+        @Override
+        public String visitTypeVariable(TypeVariable t, Void p) {
+            return getSignature(processingEnv.getTypeUtils().erasure(t));
+        }
+
+        @Override
+        protected String defaultAction(TypeMirror t, Void p) {
+            return "L" + processingEnv.getTypeUtils().erasure(t).toString() + ";";
+        }
+    }
+
+    /**
+     * A per method option with a typed value, written as <code>option pattern type name value</code>.
+     */
+    private static final class TypedOption {
+        final String type;
+        final String name;
+        final Number min;
+        final Number max;
+
+        TypedOption(String type, String name, Number min, Number max) {
+            this.type = type;
+            this.name = name;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
     private static class Line implements Comparable<Line> {
         final String line;
         final String descriptor;
         final Class annotation;
+        final TargetCompiler compiler;
+        final String profile;
+
+        Line(String descriptor, Class annotation, TargetCompiler compiler) {
+            this(annotation.getSimpleName().toLowerCase() + " " + descriptor, descriptor, annotation, compiler);
+        }
 
-        Line(String descriptor, Class annotation) {
-            this(annotation.getSimpleName().toLowerCase() + " " + descriptor, descriptor, annotation);
+        Line(String line, String descriptor, Class annotation, TargetCompiler compiler) {
+            this(line, descriptor, annotation, compiler, null);
         }
 
-        Line(String line, String descriptor, Class annotation) {
+        Line(String line, String descriptor, Class annotation, TargetCompiler compiler, String profile) {
             this.line = line;
             this.descriptor = descriptor;
             this.annotation = annotation;
+            this.compiler = compiler;
+            this.profile = profile;
         }
 
         @Override
@@ -359,7 +988,12 @@ public final class CompileCommandProcessor extends AbstractProcessor {
                 return -1;
             if (this.annotation != Quiet.class && o.annotation == Quiet.class)
                 return 1;
-            return this.line.compareTo(o.line);
+            int c = this.line.compareTo(o.line);
+            if (c == 0)
+                c = this.compiler.compareTo(o.compiler);
+            if (c == 0 && this.profile != o.profile)
+                c = this.profile == null ? -1 : o.profile == null ? 1 : this.profile.compareTo(o.profile);
+            return c;
         }
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The JDK feature releases accepting the commands and per method options of <code>hotspot_compiler</code> lines.
+ * <ul>
+ * <li>The commands of JDK 8 are accepted by every release.</li>
+ * <li><code>blackhole</code> requires JDK 17, <code>MemLimit</code> and <code>MemStat</code> JDK 22.</li>
+ * <li>The other commands are per method options written as commands, accepted since JDK 16.</li>
+ * <li>The <code>DisableIntrinsic</code> option requires JDK 9 and the <code>ControlIntrinsic</code> option
+ * JDK 15.</li>
+ * </ul>
+ * Releases older than the minimum release of a line report it as an error, and ignore it.
+ * {@link #translate(String, int)} rewrites lines for older releases when an equivalent exists.
+ */
+public final class CompileCommandReleases {
+
+    private static final Set<String> JDK8_COMMANDS = new HashSet<String>(Arrays.asList(
+        "break", "compileonly", "dontinline", "exclude", "help", "inline", "log", "option", "print", "quiet"));
+
+    private static final Set<String> TYPES = new HashSet<String>(Arrays.asList(
+        "bool", "intx", "uintx", "double", "ccstr", "ccstrlist"));
+
+    private static final int OPTION_COMMANDS_RELEASE = 16;
+
+    private static final Map<String, Integer> COMMANDS = new HashMap<String, Integer>();
+
+    private static final Map<String, Integer> OPTIONS = new HashMap<String, Integer>();
+
+    static {
+        COMMANDS.put("blackhole", 17);
+        COMMANDS.put("memlimit", 22);
+        COMMANDS.put("memstat", 22);
+
+        OPTIONS.put("DisableIntrinsic", 9);
+        OPTIONS.put("ControlIntrinsic", 15);
+    }
+
+    private CompileCommandReleases() {
+    }
+
+    /**
+     * @param line a <code>hotspot_compiler</code> line.
+     * @return the first JDK feature release accepting the line, <code>8</code> for the lines accepted by every
+     * release.
+     */
+    public static int getMinimumRelease(String line) {
+        final String[] tokens = line.trim().split("\\s+");
+        final String command = tokens[0].toLowerCase();
+        if (COMMANDS.containsKey(command))
+            return COMMANDS.get(command);
+        if (!JDK8_COMMANDS.contains(command))
+            return command.isEmpty() || command.startsWith("#") ? 8 : OPTION_COMMANDS_RELEASE;
+        if (!"option".equals(command))
+            return 8;
+
+        int i = 2;
+        if (i < tokens.length && tokens[i].startsWith("("))
+            i++;
+        if (i + 1 < tokens.length && TYPES.contains(tokens[i]))
+            return getOptionRelease(tokens[i + 1]);
+        int release = 8;
+        for (; i < tokens.length; i++)
+            for (String option : tokens[i].split(","))
+                release = Math.max(release, getOptionRelease(option.split("=", 2)[0]));
+        return release;
+    }
+
+    /**
+     * @param line    a <code>hotspot_compiler</code> line.
+     * @param release a JDK feature release, for example <code>17</code>.
+     * @return whether the release accepts the line.
+     */
+    public static boolean isSupported(String line, int release) {
+        return getMinimumRelease(line) <= release;
+    }
+
+    /**
+     * Translate a line for a release: <code>ControlIntrinsic</code> options become <code>DisableIntrinsic</code>
+     * options for their disabled intrinsics, intrinsics being enabled by default.
+     *
+     * @param line    a <code>hotspot_compiler</code> line.
+     * @param release a JDK feature release, for example <code>11</code>.
+     * @return the line accepted by the release, or <code>null</code> if the line has no equivalent for the release.
+     */
+    public static String translate(String line, int release) {
+        if (isSupported(line, release))
+            return line;
+
+        final String[] tokens = line.trim().split("\\s+");
+        int i = 2;
+        if (i < tokens.length && tokens[i].startsWith("("))
+            i++;
+        if (!"option".equals(tokens[0]) || i + 2 >= tokens.length || !"ccstrlist".equals(tokens[i])
+            || !"ControlIntrinsic".equals(tokens[i + 1]) || release < getOptionRelease("DisableIntrinsic"))
+            return null;
+
+        final StringBuilder translated = new StringBuilder();
+        for (int j = 0; j <= i; j++)
+            translated.append(tokens[j]).append(' ');
+        translated.append("DisableIntrinsic");
+        boolean disabled = false;
+        for (int j = i + 2; j < tokens.length; j++) {
+            if (tokens[j].startsWith("-")) {
+                translated.append(' ').append(tokens[j].substring(1));
+                disabled = true;
+            }
+        }
+        return disabled ? translated.toString() : null;
+    }
+
+    private static int getOptionRelease(String option) {
+        final Integer release = OPTIONS.get(option);
+        return release != null ? release : 8;
+    }
+}
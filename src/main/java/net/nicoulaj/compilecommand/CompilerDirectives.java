@@ -0,0 +1,482 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import net.nicoulaj.compilecommand.annotations.TargetCompiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import static net.nicoulaj.compilecommand.annotations.TargetCompiler.ALL;
+
+/**
+ * Translates <code>hotspot_compiler</code> lines into
+ * <a href="https://docs.oracle.com/javase/9/vm/writing-directives.htm">compiler directives</a> (JDK 9+).
+ * <ul>
+ * <li><code>inline</code> and <code>dontinline</code> become <code>+</code>/<code>-</code> entries of the
+ * <code>inline</code> list, which is given to every directive so that it applies whatever the caller.</li>
+ * <li><code>exclude</code>, <code>print</code>, <code>break</code> and <code>log</code> become the
+ * <code>Exclude</code>, <code>PrintAssembly</code>, <code>BreakAtCompile</code> and <code>Log</code> flags of the
+ * directive matching the method.</li>
+ * <li><code>compileonly</code> excludes every method not matched by a <code>compileonly</code> line.</li>
+ * <li><code>option</code> sets the flags of the directive matching the method, the line being reported as not
+ * translated if one of its flags is not a directive flag. The values of a <code>ccstrlist</code> flag are joined with
+ * commas.</li>
+ * <li><code>quiet</code> has no equivalent, directives do not print anything.</li>
+ * </ul>
+ * Lines added for a single {@link TargetCompiler} go to the <code>c1</code> or <code>c2</code> block of their
+ * directive. The block is written after the flags common to both compilers and before the common inline list, so
+ * that it takes precedence over both.
+ * <p>
+ * HotSpot only applies the first directive matching a method, and the first matching entry of an inline list. The
+ * directives and inline entries are written from the most specific pattern to the least specific one, <code>*.*</code>
+ * last, and every directive also gets the flags it does not set itself from the directives whose pattern matches all of
+ * its methods, so that a <code>Foo::*</code> line still applies to the methods of <code>Foo</code> with a directive of
+ * their own.
+ * Lines that can not be translated are reported by {@link #add(String)} and listed by {@link #getSkipped()}.
+ */
+public final class CompilerDirectives {
+
+    static final String ANY = "*.*";
+
+    private static final Set<String> FLAGS = new HashSet<String>(Arrays.asList(
+        "BackgroundCompilation", "BreakAtCompile", "BreakAtExecute", "DumpInline", "DumpReplay", "Exclude", "Log",
+        "PrintAssembly", "PrintInlining", "PrintNMethods", "ReplayInline", "RepeatCompilation",
+        "DisableIntrinsic", "ControlIntrinsic",
+        "BlockLayoutByFrequency", "CloneMapDebug", "IncrementalInlineForceCleanup", "MaxNodeLimit",
+        "PrintIntrinsics", "PrintOptoAssembly", "TraceSpilling", "Vectorize", "VectorizeDebug"));
+
+    private static final Set<String> TYPES = new HashSet<String>(Arrays.asList(
+        "bool", "intx", "uintx", "double", "ccstr", "ccstrlist"));
+
+    private static final Pattern NUMBER = Pattern.compile("-?[0-9]+(\\.[0-9]+)?([eE][-+]?[0-9]+)?");
+
+    /**
+     * Orders directive patterns from the most specific to the least specific: a pattern always comes before the patterns
+     * matching all of its methods.
+     */
+    private static final Comparator<String> SPECIFICITY = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            final int specificity = compareSpecificity(a, b);
+            return specificity != 0 ? specificity : a.compareTo(b);
+        }
+    };
+
+    /**
+     * Orders inline list entries by the specificity of their pattern.
+     */
+    private static final Comparator<String> INLINE_SPECIFICITY = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            final int specificity = compareSpecificity(a.substring(1), b.substring(1));
+            return specificity != 0 ? specificity : a.compareTo(b);
+        }
+    };
+
+    private final Map<String, Map<TargetCompiler, Map<String, String>>> directives =
+        new TreeMap<String, Map<TargetCompiler, Map<String, String>>>();
+
+    private final Map<TargetCompiler, SortedSet<String>> inline = new EnumMap<TargetCompiler, SortedSet<String>>(TargetCompiler.class);
+
+    private final Set<String> compileOnly = new HashSet<String>();
+
+    private final List<String> skipped = new ArrayList<String>();
+
+    /**
+     * Add a <code>hotspot_compiler</code> line, for both compilers.
+     *
+     * @param line the line.
+     * @return whether the line was translated, <code>quiet</code>, blank and comment lines being translated to
+     * nothing.
+     */
+    public boolean add(String line) {
+        return add(line, ALL);
+    }
+
+    /**
+     * Add a <code>hotspot_compiler</code> line.
+     *
+     * @param line     the line.
+     * @param compiler the compilers the line applies to.
+     * @return whether the line was translated, <code>quiet</code>, blank and comment lines being translated to
+     * nothing.
+     */
+    public boolean add(String line, TargetCompiler compiler) {
+        final String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#") || "quiet".equals(trimmed))
+            return true;
+
+        final String[] tokens = trimmed.split("\\s+");
+        if (tokens.length < 2)
+            return skip(line);
+
+        int i = 1;
+        String pattern = tokens[i++];
+        if (i < tokens.length && tokens[i].startsWith("("))
+            pattern += tokens[i++];
+        pattern = toPattern(pattern);
+
+        final String command = tokens[0];
+        if ("option".equals(command))
+            return addOption(line, pattern, compiler, tokens, i);
+        if (i != tokens.length)
+            return skip(line);
+
+        if ("inline".equals(command))
+            inline(compiler).add("+" + pattern);
+        else if ("dontinline".equals(command))
+            inline(compiler).add("-" + pattern);
+        else if ("exclude".equals(command))
+            set(pattern, compiler, "Exclude", "true");
+        else if ("print".equals(command))
+            set(pattern, compiler, "PrintAssembly", "true");
+        else if ("break".equals(command))
+            set(pattern, compiler, "BreakAtCompile", "true");
+        else if ("log".equals(command))
+            set(pattern, compiler, "Log", "true");
+        else if ("compileonly".equals(command) && compiler == ALL)
+            compileOnly.add(pattern);
+        else
+            return skip(line);
+        return true;
+    }
+
+    /**
+     * @return the lines that could not be translated.
+     */
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return whether no directive would be generated.
+     */
+    public boolean isEmpty() {
+        return directives.isEmpty() && inline.isEmpty() && compileOnly.isEmpty();
+    }
+
+    /**
+     * @return the number of directives that would be generated, to compare with <code>CompilerDirectivesLimit</code>.
+     */
+    public int size() {
+        final Set<String> patterns = new HashSet<String>(directives.keySet());
+        patterns.addAll(compileOnly);
+        patterns.remove(ANY);
+        return patterns.size() + (inline.isEmpty() && compileOnly.isEmpty() && !directives.containsKey(ANY) ? 0 : 1);
+    }
+
+    /**
+     * @return the directives, as a JSON array.
+     */
+    public String toJson() {
+        final Map<String, Map<TargetCompiler, Map<String, String>>> all = new TreeMap<String, Map<TargetCompiler, Map<String, String>>>(SPECIFICITY);
+        for (Map.Entry<String, Map<TargetCompiler, Map<String, String>>> directive : directives.entrySet())
+            all.put(directive.getKey(), copy(directive.getValue()));
+        if (!compileOnly.isEmpty()) {
+            for (Map.Entry<String, Map<TargetCompiler, Map<String, String>>> directive : all.entrySet())
+                if (!flags(directive.getValue(), ALL).containsKey("Exclude"))
+                    flags(directive.getValue(), ALL).put("Exclude", Boolean.toString(!isCompileOnly(directive.getKey())));
+            for (String pattern : compileOnly)
+                if (!all.containsKey(pattern))
+                    flags(directive(all, pattern), ALL).put("Exclude", "false");
+            if (!compileOnly.contains(ANY))
+                flags(directive(all, ANY), ALL).put("Exclude", "true");
+        }
+        inheritFlags(all);
+
+        final StringBuilder sb = new StringBuilder("[");
+        String separator = "";
+        for (Map.Entry<String, Map<TargetCompiler, Map<String, String>>> directive : all.entrySet()) {
+            if (ANY.equals(directive.getKey()))
+                continue;
+            sb.append(separator);
+            appendDirective(sb, directive.getKey(), directive.getValue());
+            separator = ",";
+        }
+        if (!inline.isEmpty() || all.containsKey(ANY)) {
+            sb.append(separator);
+            appendDirective(sb, ANY, all.containsKey(ANY) ? all.get(ANY) : new EnumMap<TargetCompiler, Map<String, String>>(TargetCompiler.class));
+        }
+        return sb.append("\n]\n").toString();
+    }
+
+    private boolean isCompileOnly(String pattern) {
+        for (String compileOnlyPattern : compileOnly)
+            if (compileOnlyPattern.equals(pattern) || covers(compileOnlyPattern, pattern))
+                return true;
+        return false;
+    }
+
+    /**
+     * Copy to every directive the flags it does not set from the directives covering it, nearest first, as only the
+     * first matching directive applies to a method. A flag set by a directive for both compilers is not overridden by
+     * the flags of less specific directives for a single compiler.
+     */
+    private static void inheritFlags(Map<String, Map<TargetCompiler, Map<String, String>>> directives) {
+        final List<String> patterns = new ArrayList<String>(directives.keySet());
+        for (int i = 0; i < patterns.size(); i++) {
+            final Map<TargetCompiler, Map<String, String>> directive = directives.get(patterns.get(i));
+            for (int j = i + 1; j < patterns.size(); j++) {
+                if (!covers(patterns.get(j), patterns.get(i)))
+                    continue;
+                final Set<String> common = directive.containsKey(ALL)
+                                           ? new HashSet<String>(directive.get(ALL).keySet())
+                                           : Collections.<String>emptySet();
+                for (Map.Entry<TargetCompiler, Map<String, String>> flags : directives.get(patterns.get(j)).entrySet())
+                    for (Map.Entry<String, String> flag : flags.getValue().entrySet())
+                        if ((flags.getKey() == ALL || !common.contains(flag.getKey()))
+                            && !flags(directive, flags.getKey()).containsKey(flag.getKey()))
+                            flags(directive, flags.getKey()).put(flag.getKey(), flag.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return whether all the methods matched by the <code>specific</code> pattern are matched by the
+     * <code>general</code> one, and the patterns differ.
+     */
+    static boolean covers(String general, String specific) {
+        if (general.equals(specific))
+            return false;
+        final String[] g = split(general);
+        final String[] s = split(specific);
+        return coversPart(g[0], s[0]) && coversPart(g[1], s[1]) && (g[2].isEmpty() || g[2].equals(s[2]));
+    }
+
+    private static boolean coversPart(String general, String specific) {
+        if ("*".equals(general) || general.equals(specific))
+            return true;
+        final boolean prefix = general.endsWith("*");
+        final boolean suffix = general.startsWith("*");
+        final String literal = literal(general);
+        if (literal.indexOf('*') >= 0)
+            return false;
+        if (prefix && suffix)
+            return literal(specific).contains(literal);
+        if (prefix)
+            return !specific.startsWith("*") && specific.startsWith(literal);
+        if (suffix)
+            return !specific.endsWith("*") && specific.endsWith(literal);
+        return false;
+    }
+
+    /**
+     * @return a negative number if the <code>a</code> pattern is more specific than <code>b</code>, a positive one if it
+     * is less specific, <code>0</code> if they are as specific.
+     */
+    private static int compareSpecificity(String a, String b) {
+        final String[] pa = split(a);
+        final String[] pb = split(b);
+        for (int i = 0; i < 2; i++) {
+            final boolean wildcardA = pa[i].indexOf('*') >= 0;
+            final int wildcard = compare(wildcardA, pb[i].indexOf('*') >= 0);
+            if (wildcard != 0)
+                return wildcard;
+            if (wildcardA) {
+                // A wildcard part covering another has a shorter literal, or the same literal with more wildcards
+                final int literal = literal(pb[i]).length() - literal(pa[i]).length();
+                if (literal != 0)
+                    return literal;
+                final int wildcards = pa[i].length() - pb[i].length();
+                if (wildcards != 0)
+                    return wildcards;
+            }
+        }
+        return compare(pa[2].isEmpty(), pb[2].isEmpty());
+    }
+
+    private static int compare(boolean a, boolean b) {
+        return a == b ? 0 : a ? 1 : -1;
+    }
+
+    /**
+     * @return the class, method and signature of a directive pattern, the signature being empty if there is none.
+     */
+    private static String[] split(String pattern) {
+        final int paren = pattern.indexOf('(');
+        final String method = paren >= 0 ? pattern.substring(0, paren) : pattern;
+        final int dot = method.lastIndexOf('.');
+        return new String[]{method.substring(0, dot), method.substring(dot + 1), paren >= 0 ? pattern.substring(paren) : ""};
+    }
+
+    private static String literal(String part) {
+        int start = 0;
+        int end = part.length();
+        while (start < end && part.charAt(start) == '*')
+            start++;
+        while (end > start && part.charAt(end - 1) == '*')
+            end--;
+        return part.substring(start, end);
+    }
+
+    private boolean addOption(String line, String pattern, TargetCompiler compiler, String[] tokens, int i) {
+        final int remaining = tokens.length - i;
+        if (remaining == 1) {
+            boolean translated = true;
+            for (String option : tokens[i].split(",")) {
+                final int equals = option.indexOf('=');
+                final String flag = equals < 0 ? option : option.substring(0, equals);
+                final String value = equals < 0 ? "true" : option.substring(equals + 1);
+                if (FLAGS.contains(flag))
+                    set(pattern, compiler, flag, isLiteral(value) ? value : quote(value));
+                else
+                    translated = false;
+            }
+            return translated || skip(line);
+        }
+        if ((remaining == 3 || remaining > 3 && "ccstrlist".equals(tokens[i]))
+            && TYPES.contains(tokens[i]) && FLAGS.contains(tokens[i + 1])) {
+            final String type = tokens[i];
+            final StringBuilder value = new StringBuilder(tokens[i + 2]);
+            for (int j = i + 3; j < tokens.length; j++)
+                value.append(',').append(tokens[j]);
+            set(pattern, compiler, tokens[i + 1], type.startsWith("ccstr") ? quote(value.toString()) : value.toString());
+            return true;
+        }
+        return skip(line);
+    }
+
+    private SortedSet<String> inline(TargetCompiler compiler) {
+        SortedSet<String> entries = inline.get(compiler);
+        if (entries == null) {
+            entries = new TreeSet<String>(INLINE_SPECIFICITY);
+            inline.put(compiler, entries);
+        }
+        return entries;
+    }
+
+    private void set(String pattern, TargetCompiler compiler, String flag, String value) {
+        flags(directive(directives, pattern), compiler).put(flag, value);
+    }
+
+    private static Map<TargetCompiler, Map<String, String>> directive(Map<String, Map<TargetCompiler, Map<String, String>>> directives, String pattern) {
+        Map<TargetCompiler, Map<String, String>> directive = directives.get(pattern);
+        if (directive == null) {
+            directive = new EnumMap<TargetCompiler, Map<String, String>>(TargetCompiler.class);
+            directives.put(pattern, directive);
+        }
+        return directive;
+    }
+
+    private static Map<String, String> flags(Map<TargetCompiler, Map<String, String>> directive, TargetCompiler compiler) {
+        Map<String, String> flags = directive.get(compiler);
+        if (flags == null) {
+            flags = new TreeMap<String, String>();
+            directive.put(compiler, flags);
+        }
+        return flags;
+    }
+
+    private static Map<TargetCompiler, Map<String, String>> copy(Map<TargetCompiler, Map<String, String>> directive) {
+        final Map<TargetCompiler, Map<String, String>> copy = new EnumMap<TargetCompiler, Map<String, String>>(TargetCompiler.class);
+        for (Map.Entry<TargetCompiler, Map<String, String>> flags : directive.entrySet())
+            copy.put(flags.getKey(), new TreeMap<String, String>(flags.getValue()));
+        return copy;
+    }
+
+    private boolean skip(String line) {
+        skipped.add(line);
+        return false;
+    }
+
+    private void appendDirective(StringBuilder sb, String pattern, Map<TargetCompiler, Map<String, String>> directive) {
+        sb.append("\n  {\n    \"match\": ").append(quote(pattern));
+        if (directive.containsKey(ALL))
+            appendFlags(sb, "\n    ", directive.get(ALL));
+        for (TargetCompiler compiler : TargetCompiler.values()) {
+            if (compiler == ALL || !directive.containsKey(compiler) && !inline.containsKey(compiler))
+                continue;
+            sb.append(",\n    \"").append(compiler.name().toLowerCase()).append("\": {");
+            final int start = sb.length();
+            if (directive.containsKey(compiler))
+                appendFlags(sb, "\n      ", directive.get(compiler));
+            if (inline.containsKey(compiler))
+                appendInline(sb, "\n      ", inline.get(compiler));
+            sb.deleteCharAt(start);
+            sb.append("\n    }");
+        }
+        if (inline.containsKey(ALL))
+            appendInline(sb, "\n    ", inline.get(ALL));
+        sb.append("\n  }");
+    }
+
+    private static void appendFlags(StringBuilder sb, String indent, Map<String, String> flags) {
+        for (Map.Entry<String, String> flag : flags.entrySet())
+            sb.append(",").append(indent).append(quote(flag.getKey())).append(": ").append(flag.getValue());
+    }
+
+    private static void appendInline(StringBuilder sb, String indent, SortedSet<String> entries) {
+        sb.append(",").append(indent).append("\"inline\": [");
+        String separator = "";
+        for (String entry : entries) {
+            sb.append(separator).append(quote(entry));
+            separator = ", ";
+        }
+        sb.append("]");
+    }
+
+    /**
+     * Convert a <code>CompileCommand</code> method pattern (<code>package.Class::method (signature)</code>) to a
+     * directive method pattern (<code>package/Class.method(signature)</code>).
+     */
+    static String toPattern(String descriptor) {
+        String type = descriptor;
+        String method = "*";
+        String signature = "";
+
+        final int paren = type.indexOf('(');
+        if (paren >= 0) {
+            signature = type.substring(paren).replace('.', '/');
+            type = type.substring(0, paren);
+        }
+
+        final int separator = type.indexOf("::");
+        if (separator >= 0) {
+            method = type.substring(separator + 2);
+            type = type.substring(0, separator);
+        }
+
+        return type.replace('.', '/') + "." + method + signature;
+    }
+
+    private static boolean isLiteral(String value) {
+        return "true".equals(value) || "false".equals(value) || NUMBER.matcher(value).matches();
+    }
+
+    private static String quote(String s) {
+        final StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\');
+            sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
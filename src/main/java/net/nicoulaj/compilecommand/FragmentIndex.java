@@ -0,0 +1,234 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Index of the fragments written by {@link CompileCommandProcessor} in incremental output mode, used by
+ * {@link IncrementalCompilationHelper} to only re-read the fragments that changed since the previous merge.
+ * <p>For each fragment, the index records its name, size, last modification time, content hash and lines. A
+ * fragment whose size and modification time did not change is not read again, unless it was modified too close to
+ * the index creation for its timestamp to be trusted, in which case its content hash is checked.</p>
+ */
+final class FragmentIndex {
+
+    private static final String HEADER = "# hotspot_compiler fragment index v1";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Modification times closer than this to the index creation are not trusted (coarse file system clocks). */
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+
+    private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+    private long created;
+
+    private long updated;
+
+    private int read;
+
+    private int removed;
+
+    private FragmentIndex() {
+    }
+
+    /**
+     * Load the index, or an empty index if it does not exist or is not readable.
+     */
+    static FragmentIndex load(File indexFile) throws IOException {
+        final FragmentIndex index = new FragmentIndex();
+        if (!indexFile.isFile())
+            return index;
+
+        BufferedReader reader = null;
+        try {
+            reader = Files.newBufferedReader(indexFile.toPath(), UTF_8);
+            if (!HEADER.equals(reader.readLine()))
+                return index;
+            index.created = Long.parseLong(reader.readLine());
+
+            Entry entry = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("F ")) {
+                    final String[] fields = line.split(" ", 5);
+                    entry = new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]);
+                    index.entries.put(fields[4], entry);
+                } else if (line.startsWith("L ") && entry != null) {
+                    entry.lines.add(line.substring(2));
+                } else {
+                    throw new IOException("Unexpected line in fragment index: " + line);
+                }
+            }
+        } catch (RuntimeException e) {
+            index.entries.clear();
+        } catch (IOException e) {
+            index.entries.clear();
+        } finally {
+            if (reader != null)
+                reader.close();
+        }
+        return index;
+    }
+
+    /**
+     * Bring the index up to date with the given fragments, reading only the fragments that were added or changed.
+     *
+     * @return whether any fragment was added, changed or removed.
+     */
+    boolean update(File[] files, Charset charset) throws IOException {
+        updated = System.currentTimeMillis();
+        final Set<String> names = new HashSet<String>();
+        boolean changed = false;
+        for (File file : files) {
+            if (!file.isFile())
+                continue;
+
+            final String name = file.getName();
+            names.add(name);
+
+            final long size = file.length();
+            final long lastModified = file.lastModified();
+            final Entry entry = entries.get(name);
+            if (entry != null && entry.size == size && entry.lastModified == lastModified
+                && lastModified < created - TIMESTAMP_GRANULARITY)
+                continue;
+
+            final byte[] content = Files.readAllBytes(file.toPath());
+            read++;
+            final String hash = hash(content);
+            if (entry != null && entry.hash.equals(hash)) {
+                entries.put(name, new Entry(size, lastModified, hash, entry.lines));
+                continue;
+            }
+
+            final Entry updated = new Entry(size, lastModified, hash);
+            final BufferedReader reader = new BufferedReader(new StringReader(new String(content, charset)));
+            String line;
+            while ((line = reader.readLine()) != null)
+                updated.lines.add(line);
+            entries.put(name, updated);
+            changed = true;
+        }
+
+        final int before = entries.size();
+        entries.keySet().retainAll(names);
+        removed = before - entries.size();
+        return changed || removed > 0;
+    }
+
+    /**
+     * @return the merged lines of all fragments, excluding the <code>quiet</code> command.
+     */
+    SortedSet<String> getLines() {
+        final SortedSet<String> lines = new TreeSet<String>();
+        for (Entry entry : entries.values())
+            lines.addAll(entry.lines);
+        lines.remove(IncrementalCompilationHelper.QUIET);
+        return lines;
+    }
+
+    boolean isQuiet() {
+        for (Entry entry : entries.values())
+            if (entry.lines.contains(IncrementalCompilationHelper.QUIET))
+                return true;
+        return false;
+    }
+
+    int getReadCount() {
+        return read;
+    }
+
+    int getRemovedCount() {
+        return removed;
+    }
+
+    void save(File indexFile) throws IOException {
+        BufferedWriter writer = null;
+        try {
+            writer = Files.newBufferedWriter(indexFile.toPath(), UTF_8);
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(Long.toString(updated));
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write("F " + entry.getValue().size + " " + entry.getValue().lastModified
+                             + " " + entry.getValue().hash + " " + entry.getKey());
+                writer.newLine();
+                for (String line : entry.getValue().lines) {
+                    writer.write("L ");
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        } finally {
+            if (writer != null)
+                writer.close();
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        final long size;
+
+        final long lastModified;
+
+        final String hash;
+
+        final List<String> lines;
+
+        Entry(long size, long lastModified, String hash) {
+            this(size, lastModified, hash, new ArrayList<String>());
+        }
+
+        Entry(long size, long lastModified, String hash, List<String> lines) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.lines = lines;
+        }
+    }
+}
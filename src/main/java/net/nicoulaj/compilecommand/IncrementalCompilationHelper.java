@@ -17,18 +17,133 @@
 package net.nicoulaj.compilecommand;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.Set;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+/**
+ * Merges the fragments written by {@link CompileCommandProcessor} in incremental output mode into a single
+ * <code>hotspot_compiler</code> file.
+ * <p>Fragments are read into sorted runs of bounded size, which are spilled to temporary files and k-way merged
+ * when they do not fit in a single run, so memory stays bounded whatever the number of fragments. The output is
+ * sorted, de-duplicated and starts with a single <code>quiet</code> command if any fragment contains one.</p>
+ * <p>Fragments can be read concurrently on a {@link ForkJoinPool}, the output being identical to the sequential
+ * merge.</p>
+ * <p>When an index file is given, only the fragments added or changed since the previous merge are read, the
+ * lines of the other fragments being cached in the index.</p>
+ */
 public class IncrementalCompilationHelper {
+
+    static final int DEFAULT_RUN_SIZE = 1 << 16;
+
+    static final int MAX_FAN_IN = 64;
+
+    static final int FRAGMENTS_PER_TASK = 64;
+
+    static final String QUIET = "quiet";
+
+    public static final String INDEX_FILE_SUFFIX = ".index";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     public static void mergeIncrementalFiles(File incrementalFiles, File outputFile) throws IOException {
+        mergeIncrementalFiles(incrementalFiles, outputFile, UTF_8);
+    }
+
+    public static void mergeIncrementalFiles(File incrementalFiles, File outputFile, Charset charset) throws IOException {
+        mergeIncrementalFiles(incrementalFiles, outputFile, charset, 1);
+    }
+
+    /**
+     * Merge the fragments, reading them on <code>parallelism</code> threads.
+     *
+     * @param incrementalFiles the fragments directory.
+     * @param outputFile       the <code>hotspot_compiler</code> file to write.
+     * @param charset          the charset of the fragments and of the output file.
+     * @param parallelism      the number of threads reading fragments, <code>1</code> to read them on the calling
+     *                         thread. As reading fragments is I/O bound, it may exceed the number of processors.
+     * @throws IOException if a fragment could not be read or the output could not be written.
+     */
+    public static void mergeIncrementalFiles(File incrementalFiles, File outputFile, Charset charset, int parallelism) throws IOException {
+        mergeIncrementalFiles(incrementalFiles, outputFile, charset, parallelism, DEFAULT_RUN_SIZE);
+    }
+
+    static void mergeIncrementalFiles(File incrementalFiles, File outputFile, Charset charset, int parallelism, int runSize) throws IOException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        final File[] files = listFragments(incrementalFiles, outputFile);
+
+        final Merger merger = new Merger(charset, runSize);
+        try {
+            final Runs runs;
+            if (parallelism == 1) {
+                runs = merger.ingest(files, 0, files.length);
+            } else {
+                final ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    runs = pool.invoke(new IngestTask(merger, files, 0, files.length));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            merger.write(runs, outputFile);
+        } finally {
+            merger.deleteTemporaryFiles();
+        }
+    }
+
+    /**
+     * Merge the fragments, only reading the ones that were added or changed since the last merge using the same
+     * index file.
+     * <p>The output file is only rewritten if a fragment was added, changed or removed, or if it does not exist.</p>
+     *
+     * @param incrementalFiles the fragments directory.
+     * @param outputFile       the <code>hotspot_compiler</code> file to write.
+     * @param charset          the charset of the fragments and of the output file.
+     * @param indexFile        the index file, created if it does not exist, see {@link #getIndexFile(File)}.
+     * @throws IOException if a fragment or the index could not be read or the output could not be written.
+     */
+    public static void mergeIncrementalFiles(File incrementalFiles, File outputFile, Charset charset, File indexFile) throws IOException {
+        if (indexFile == null)
+            throw new NullPointerException("Index file must not be null");
+
+        final File[] files = listFragments(incrementalFiles, outputFile);
+
+        final FragmentIndex index = FragmentIndex.load(indexFile);
+        if (index.update(files, charset) || !outputFile.isFile())
+            writeLines(outputFile, charset, index.isQuiet(), index.getLines());
+        index.save(indexFile);
+    }
+
+    /**
+     * Get the default index file for a fragments directory, next to it.
+     *
+     * @param incrementalFiles the fragments directory.
+     * @return the index file.
+     */
+    public static File getIndexFile(File incrementalFiles) {
+        return new File(incrementalFiles.getParentFile(), incrementalFiles.getName() + INDEX_FILE_SUFFIX);
+    }
+
+    private static File[] listFragments(File incrementalFiles, File outputFile) throws IOException {
         if (incrementalFiles == null)
             throw new NullPointerException("Input directory must not be null");
         if (!incrementalFiles.isDirectory())
@@ -36,50 +151,284 @@ public class IncrementalCompilationHelper {
         if (outputFile == null)
             throw new NullPointerException("Output file must not be null");
 
-        PrintWriter pw = null;
-        try {
-            File[] files = incrementalFiles.listFiles();
-            if (files == null)
-                throw new IOException("Could not list files in input directory " + incrementalFiles);
+        File[] files = incrementalFiles.listFiles();
+        if (files == null)
+            throw new IOException("Could not list files in input directory " + incrementalFiles);
+        return files;
+    }
 
-            Set<String> lines = new TreeSet<String>();
-            boolean quiet = false;
+    /**
+     * Sorted lines read from fragments: a run still in memory plus the runs already spilled to temporary files.
+     */
+    private static final class Runs {
 
-            for (File file : files) {
-                quiet = processFile(lines, quiet, file);
+        SortedSet<String> lines = new TreeSet<String>();
+
+        final List<File> files = new ArrayList<File>();
+
+        boolean quiet;
+    }
+
+    private static final class Merger {
+
+        private final Charset charset;
+
+        private final int runSize;
+
+        private final Queue<File> temporaryFiles = new ConcurrentLinkedQueue<File>();
+
+        Merger(Charset charset, int runSize) {
+            this.charset = charset;
+            this.runSize = runSize;
+        }
+
+        Runs ingest(File[] files, int from, int to) throws IOException {
+            final Runs runs = new Runs();
+            for (int i = from; i < to; i++) {
+                if (!files[i].isFile())
+                    continue;
+                runs.quiet |= processFile(runs.lines, files[i], charset);
+                if (runs.lines.size() >= runSize)
+                    spill(runs);
             }
+            return runs;
+        }
 
-            pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"));
-            if (quiet) {
-                pw.println("quiet");
+        Runs combine(Runs left, Runs right) throws IOException {
+            final Runs result = left.lines.size() >= right.lines.size() ? left : right;
+            final Runs other = result == left ? right : left;
+            result.lines.addAll(other.lines);
+            result.files.addAll(other.files);
+            result.quiet |= other.quiet;
+            if (result.lines.size() >= runSize)
+                spill(result);
+            return result;
+        }
+
+        void write(Runs runs, File outputFile) throws IOException {
+            if (runs.files.isEmpty()) {
+                writeLines(outputFile, charset, runs.quiet, runs.lines);
+                return;
             }
-            for (String line : lines) {
-                pw.println(line);
+
+            if (!runs.lines.isEmpty())
+                spill(runs);
+
+            final List<File> files = runs.files;
+            while (files.size() > MAX_FAN_IN) {
+                final List<File> group = new ArrayList<File>(files.subList(0, MAX_FAN_IN));
+                final File merged = createTemporaryFile();
+                merge(group, merged, UTF_8, false);
+                files.removeAll(group);
+                files.add(merged);
+                delete(group);
             }
+
+            merge(files, outputFile, charset, runs.quiet);
         }
-        finally {
-            if (pw != null)
-                pw.close();
+
+        private void spill(Runs runs) throws IOException {
+            final File run = createTemporaryFile();
+            writeLines(run, UTF_8, false, runs.lines);
+            runs.files.add(run);
+            runs.lines = new TreeSet<String>();
+        }
+
+        private File createTemporaryFile() throws IOException {
+            final File file = File.createTempFile("hotspot_compiler", ".run");
+            temporaryFiles.add(file);
+            return file;
+        }
+
+        void deleteTemporaryFiles() {
+            delete(temporaryFiles);
         }
     }
 
-    private static boolean processFile(Set<String> lines, boolean quiet, File file) throws IOException
+    /**
+     * Reads a range of fragments, splitting it until it is small enough.
+     */
+    private static final class IngestTask extends RecursiveTask<Runs> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Merger merger;
+
+        private final File[] files;
+
+        private final int from;
+
+        private final int to;
+
+        IngestTask(Merger merger, File[] files, int from, int to) {
+            this.merger = merger;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Runs compute() {
+            try {
+                if (to - from <= FRAGMENTS_PER_TASK)
+                    return merger.ingest(files, from, to);
+
+                final int middle = (from + to) >>> 1;
+                final IngestTask left = new IngestTask(merger, files, from, middle);
+                left.fork();
+                final Runs right = new IngestTask(merger, files, middle, to).compute();
+                return merger.combine(left.join(), right);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static boolean processFile(SortedSet<String> lines, File file, Charset charset) throws IOException
     {
         BufferedReader br = null;
         try {
-            br = new BufferedReader(new FileReader(file));
-            String l;
-            while ((l = br.readLine()) != null) {
-                if ("quiet".equals(l))
-                    quiet = true;
-                else
-                    lines.add(l);
-            }
+            br = Files.newBufferedReader(file.toPath(), charset);
+            return readLines(br, lines);
         }
         finally {
             if (br != null)
                 br.close();
         }
+    }
+
+    /**
+     * Read the lines of a <code>hotspot_compiler</code> file or fragment, for merging them with
+     * {@link #writeLines(File, Charset, boolean, Iterable)}.
+     *
+     * @param reader the file or fragment, not closed by this method.
+     * @param lines  the set the lines are added to, except the <code>quiet</code> command.
+     * @return whether the <code>quiet</code> command was read.
+     * @throws IOException if the lines could not be read.
+     */
+    public static boolean readLines(BufferedReader reader, SortedSet<String> lines) throws IOException
+    {
+        boolean quiet = false;
+        String l;
+        while ((l = reader.readLine()) != null) {
+            if (QUIET.equals(l))
+                quiet = true;
+            else
+                lines.add(l);
+        }
         return quiet;
     }
+
+    /**
+     * Write merged lines to a <code>hotspot_compiler</code> file, the <code>quiet</code> command first.
+     *
+     * @param outputFile the <code>hotspot_compiler</code> file to write.
+     * @param charset    the charset of the output file.
+     * @param quiet      whether to write the <code>quiet</code> command.
+     * @param lines      the other lines, written in iteration order.
+     * @throws IOException if the output could not be written.
+     */
+    public static void writeLines(File outputFile, Charset charset, boolean quiet, Iterable<String> lines) throws IOException {
+        BufferedWriter writer = null;
+        try {
+            writer = Files.newBufferedWriter(outputFile.toPath(), charset);
+            if (quiet) {
+                writer.write(QUIET);
+                writer.newLine();
+            }
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        finally {
+            if (writer != null)
+                writer.close();
+        }
+    }
+
+    private static void merge(List<File> runs, File outputFile, Charset charset, boolean quiet) throws IOException {
+        final PriorityQueue<Run> queue = new PriorityQueue<Run>(runs.size());
+        BufferedWriter writer = null;
+        try {
+            for (File file : runs) {
+                final Run run = new Run(Files.newBufferedReader(file.toPath(), UTF_8));
+                boolean queued = false;
+                try {
+                    queued = run.advance() && queue.add(run);
+                } finally {
+                    if (!queued)
+                        close(run);
+                }
+            }
+
+            writer = Files.newBufferedWriter(outputFile.toPath(), charset);
+            if (quiet) {
+                writer.write(QUIET);
+                writer.newLine();
+            }
+
+            String previous = null;
+            while (!queue.isEmpty()) {
+                final Run run = queue.poll();
+                if (!run.line.equals(previous)) {
+                    writer.write(run.line);
+                    writer.newLine();
+                    previous = run.line;
+                }
+                if (run.advance())
+                    queue.add(run);
+                else
+                    run.close();
+            }
+        }
+        finally {
+            for (Run run : queue)
+                close(run);
+            if (writer != null)
+                writer.close();
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void delete(Collection<File> files) {
+        for (File file : files)
+            if (file.exists() && !file.delete())
+                file.deleteOnExit();
+    }
+
+    /**
+     * Sorted run being consumed by the k-way merge.
+     */
+    private static final class Run implements Comparable<Run>, Closeable {
+
+        private final BufferedReader reader;
+
+        private String line;
+
+        Run(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        boolean advance() throws IOException {
+            line = reader.readLine();
+            return line != null;
+        }
+
+        @Override
+        public int compareTo(Run o) {
+            return line.compareTo(o.line);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
 }
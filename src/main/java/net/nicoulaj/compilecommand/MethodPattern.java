@@ -0,0 +1,142 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+/**
+ * The command and method pattern of a <code>hotspot_compiler</code> line, matched the way HotSpot does.
+ * <p>The method pattern is either <code>package.Class::method</code> or <code>package/Class.method</code>, optionally
+ * followed by a signature, and the class and method names may start or end with a <code>*</code> wildcard.</p>
+ */
+public final class MethodPattern {
+
+    private final String command;
+
+    private final String className;
+
+    private final String methodName;
+
+    private final String signature;
+
+    private MethodPattern(String command, String className, String methodName, String signature) {
+        this.command = command;
+        this.className = className;
+        this.methodName = methodName;
+        this.signature = signature;
+    }
+
+    /**
+     * Parse a <code>hotspot_compiler</code> line.
+     *
+     * @param line the line.
+     * @return the pattern of the line, or <code>null</code> if the line has no method pattern.
+     */
+    public static MethodPattern parse(String line) {
+        final String[] tokens = line.trim().split("\\s+");
+        if (tokens.length < 2 || tokens[0].startsWith("#"))
+            return null;
+
+        String pattern = tokens[1];
+        String signature = null;
+        final int paren = pattern.indexOf('(');
+        if (paren >= 0) {
+            signature = pattern.substring(paren);
+            pattern = pattern.substring(0, paren);
+        } else if (tokens.length > 2 && tokens[2].startsWith("(")) {
+            signature = tokens[2];
+        }
+
+        pattern = pattern.replace('/', '.');
+        int separator = pattern.indexOf("::");
+        final String methodName;
+        if (separator >= 0) {
+            methodName = pattern.substring(separator + 2);
+        } else {
+            separator = pattern.lastIndexOf('.');
+            if (separator < 0)
+                return null;
+            methodName = pattern.substring(separator + 1);
+        }
+
+        return new MethodPattern(tokens[0],
+                                 pattern.substring(0, separator),
+                                 methodName,
+                                 signature != null ? signature.replace('.', '/') : null);
+    }
+
+    /**
+     * @return the command of the line, for example <code>inline</code>.
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return the class name pattern, a binary name with <code>.</code> separators.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the method name pattern.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return the signature with <code>/</code> separators, or <code>null</code> if the pattern has none.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @param className  the binary name of the class of the method, with <code>.</code> or <code>/</code> separators.
+     * @param methodName the name of the method.
+     * @param descriptor the descriptor of the method, with <code>/</code> separators.
+     * @return whether the pattern matches the method.
+     */
+    public boolean matches(String className, String methodName, String descriptor) {
+        return (signature == null || signature.equals(descriptor))
+               && matches(this.className, className.replace('/', '.'))
+               && matchesName(methodName);
+    }
+
+    /**
+     * @param methodName the name of a method.
+     * @return whether the method name pattern matches the name, whatever the class and signature.
+     */
+    public boolean matchesName(String methodName) {
+        return matches(this.methodName, methodName);
+    }
+
+    private static boolean matches(String pattern, String name) {
+        if ("*".equals(pattern))
+            return true;
+        final boolean prefix = pattern.startsWith("*");
+        final boolean suffix = pattern.endsWith("*");
+        final String literal = pattern.substring(prefix ? 1 : 0, Math.max(prefix ? 1 : 0, pattern.length() - (suffix ? 1 : 0)));
+        if (prefix && suffix)
+            return name.contains(literal);
+        if (prefix)
+            return name.endsWith(literal);
+        if (suffix)
+            return name.startsWith(literal);
+        return name.equals(literal);
+    }
+}
@@ -20,8 +20,7 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
-import static java.lang.annotation.ElementType.CONSTRUCTOR;
-import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.*;
 import static java.lang.annotation.RetentionPolicy.SOURCE;
 
 /**
@@ -33,7 +32,11 @@ import static java.lang.annotation.RetentionPolicy.SOURCE;
  */
 @Documented
 @Retention(SOURCE)
-@Target({CONSTRUCTOR, METHOD})
+@Target({PACKAGE, TYPE, CONSTRUCTOR, METHOD})
 public @interface Break {
 
+    /**
+     * The compilers this hint applies to, see {@link TargetCompiler}.
+     */
+    TargetCompiler compiler() default TargetCompiler.ALL;
 }
@@ -0,0 +1,52 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Enable or disable intrinsics when compiling the specified method (JDK 15+, <code>ControlIntrinsic</code> option).
+ *
+ * @see <a href="http://nicoulaj.github.com/compile-command-annotations">Hotspot compiler hints generator documentation</a>
+ * @see <a href="https://docs.oracle.com/en/java/javase/17/docs/specs/man/java.html"><code>CompileCommand</code>/<code>CompileCommandFile</code> documentation</a>
+ * @see net.nicoulaj.compilecommand.annotations.DisableIntrinsic
+ */
+@Documented
+@Retention(SOURCE)
+@Target({PACKAGE, TYPE, CONSTRUCTOR, METHOD})
+public @interface ControlIntrinsic {
+
+    /**
+     * The identifiers of the intrinsics to enable, for example <code>_hashCode</code>.
+     */
+    String[] enable() default {};
+
+    /**
+     * The identifiers of the intrinsics to disable, for example <code>_hashCode</code>.
+     */
+    String[] disable() default {};
+
+    /**
+     * The compilers this hint applies to, see {@link TargetCompiler}.
+     */
+    TargetCompiler compiler() default TargetCompiler.ALL;
+}
@@ -0,0 +1,48 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Only apply the hints of the annotated method, type or package in the specified deployment profiles.
+ * <p>The hints are written to a <code>hotspot_compiler.&lt;profile&gt;</code> file per profile instead of the
+ * <code>hotspot_compiler</code> file, each profile file also holding the hints without profile. Methods and nested
+ * types inherit the profiles of their enclosing type or package, unless they have their own
+ * <code>&#64;Profile</code>.</p>
+ * <p>Compiler directives have no profiles: hints with a profile are left out of the compiler directives file with a
+ * warning, and hints for a single compiler with a profile can not be written to any file, which is also warned
+ * about.</p>
+ *
+ * @see <a href="http://nicoulaj.github.com/compile-command-annotations">Hotspot compiler hints generator documentation</a>
+ * @see net.nicoulaj.compilecommand.CompileCommandLauncher
+ */
+@Documented
+@Retention(SOURCE)
+@Target({PACKAGE, TYPE, CONSTRUCTOR, METHOD})
+public @interface Profile {
+
+    /**
+     * The names of the profiles, made of letters, digits, <code>_</code> and <code>-</code>.
+     */
+    String[] value();
+}
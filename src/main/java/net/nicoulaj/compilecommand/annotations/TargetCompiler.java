@@ -0,0 +1,36 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.annotations;
+
+/**
+ * The just in time compilers a hint applies to.
+ * <p>Hints for a single compiler can only be expressed in the compiler directives format (JDK 9+), they are left out
+ * of the <code>hotspot_compiler</code> file.</p>
+ *
+ * @see <a href="https://docs.oracle.com/javase/9/vm/writing-directives.htm">Compiler directives documentation</a>
+ */
+public enum TargetCompiler {
+
+    /** Both the client (C1) and server (C2) compilers. */
+    ALL,
+
+    /** The client compiler only, used for the first tiers of tiered compilation. */
+    C1,
+
+    /** The server compiler only, used for the last tier of tiered compilation. */
+    C2
+}
@@ -16,6 +16,13 @@
  */
 /**
  * Annotations used to generate a <code>hotspot_compiler</code> file for using with <code>-XX:CompileCommandFile</code>.
+ * <p>
+ * Annotations put on a type apply to all of its methods and constructors, annotations put on a package apply to all
+ * the types of the package, nested types included. A conflicting annotation on a method (for instance {@link
+ * net.nicoulaj.compilecommand.annotations.Inline} in a {@link net.nicoulaj.compilecommand.annotations.DontInline}
+ * type) takes precedence over the type or package level one. When writing incremental fragments, package level
+ * annotations are reported with a warning, as their fragment is not rewritten when only the types of the package are
+ * recompiled.
  *
  * @author <a href="http://github.com/nicoulaj">Julien Nicoulaud</a>
  * @see <a href="http://docs.oracle.com/javase/8/docs/technotes/tools/unix/java.html"><code>CompileCommand</code>/<code>CompileCommandFile</code> documentation</a>
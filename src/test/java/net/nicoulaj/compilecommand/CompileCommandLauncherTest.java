@@ -0,0 +1,128 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link CompileCommandLauncher}.
+ */
+public class CompileCommandLauncherTest {
+
+    private static final String PATH = "META-INF/hotspot_compiler";
+
+    @Test
+    public void testReleasePath() throws IOException
+    {
+        final URLClassLoader loader = createLoader(createRoot("hotspot_compiler", "hotspot_compiler-11", "hotspot_compiler-17"));
+        try {
+            assertEquals(getResources(loader, null, 8), asList(PATH));
+            assertEquals(getResources(loader, null, 11), asList(PATH + "-11"));
+            assertEquals(getResources(loader, null, 16), asList(PATH + "-11"));
+            assertEquals(getResources(loader, null, 21), asList(PATH + "-17"));
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void testReleasePathPerRoot() throws IOException
+    {
+        final URLClassLoader loader = createLoader(createRoot("hotspot_compiler", "hotspot_compiler-17"),
+                                                   createRoot("hotspot_compiler"));
+        try {
+            assertEquals(getResources(loader, null, 11), asList(PATH, PATH));
+            assertEquals(getResources(loader, null, 21), asList(PATH + "-17", PATH));
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void testProfilePath() throws IOException
+    {
+        final URLClassLoader loader = createLoader(createRoot("hotspot_compiler", "hotspot_compiler-17",
+                                                              "hotspot_compiler.production", "hotspot_compiler.production-17"));
+        try {
+            assertEquals(getResources(loader, "production", 11), asList(PATH + ".production"));
+            assertEquals(getResources(loader, "production", 21), asList(PATH + ".production-17"));
+            assertEquals(getResources(loader, "staging", 11), asList(PATH));
+            assertEquals(getResources(loader, "staging", 21), asList(PATH + "-17"));
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void testProfilePathPerRoot() throws IOException
+    {
+        final URLClassLoader loader = createLoader(createRoot("hotspot_compiler", "hotspot_compiler.production", "hotspot_compiler.production-17"),
+                                                   createRoot("hotspot_compiler", "hotspot_compiler-17"),
+                                                   createRoot("hotspot_compiler", "hotspot_compiler.production"),
+                                                   createRoot("hotspot_compiler"));
+        try {
+            assertEquals(getResources(loader, "production", 11),
+                         asList(PATH + ".production", PATH, PATH + ".production", PATH));
+            assertEquals(getResources(loader, "production", 21),
+                         asList(PATH + ".production-17", PATH + "-17", PATH + ".production", PATH));
+            assertEquals(getResources(loader, null, 21),
+                         asList(PATH, PATH + "-17", PATH, PATH));
+        } finally {
+            loader.close();
+        }
+    }
+
+    /**
+     * @return the path of the file selected in every root, in the order of the roots.
+     */
+    private static List<String> getResources(URLClassLoader loader, String profile, int release) throws IOException
+    {
+        final List<String> paths = new ArrayList<String>();
+        for (URL root : loader.getURLs())
+            for (URL resource : CompileCommandLauncher.getResources(loader, PATH, profile, release))
+                if (resource.toExternalForm().startsWith(root.toExternalForm()))
+                    paths.add(resource.toExternalForm().substring(root.toExternalForm().length()));
+        return paths;
+    }
+
+    private static File createRoot(String... files) throws IOException
+    {
+        final File classes = new File("target/test-launcher/" + System.nanoTime());
+        for (String file : files)
+            writeStringToFile(new File(classes, "META-INF/" + file), "inline net.nicoulaj.Foo::a ()V\n", "UTF-8");
+        return classes;
+    }
+
+    private static URLClassLoader createLoader(File... roots) throws IOException
+    {
+        final URL[] urls = new URL[roots.length];
+        for (int i = 0; i < roots.length; i++)
+            urls[i] = roots[i].toURI().toURL();
+        return new URLClassLoader(urls, null);
+    }
+}
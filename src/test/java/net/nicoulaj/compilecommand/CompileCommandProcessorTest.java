@@ -22,12 +22,19 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.google.common.collect.ObjectArrays.concat;
 import static java.util.Arrays.sort;
+import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_COMPACT_OPTION;
+import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_DIRECTIVES_PATH_OPTION;
 import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_FILE_PATH_DEFAULT;
+import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_RELEASES_OPTION;
+import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_TARGET_RELEASE_OPTION;
 import static net.nicoulaj.compilecommand.JavaCompilationTester.Report;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
 import static org.apache.commons.io.FilenameUtils.getBaseName;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -51,6 +58,32 @@ public final class CompileCommandProcessorTest {
 
     private static final File TEST_CASES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/testcases");
 
+    private static final File DIRECTIVES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/directives");
+
+    private static final File DIRECTIVES_TEST_CASES_SOURCES = new File("src/test/java/net/nicoulaj/compilecommand/directivestests");
+
+    private static final File DIRECTIVES_TEST_CASES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/directivestests");
+
+    private static final File PACKAGE_TEST_SOURCES = new File("src/test/java/net/nicoulaj/compilecommand/packagetests");
+
+    private static final File PACKAGE_TEST_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/packagetests");
+
+    private static final File COMPACT_TEST_CASES_SOURCES = new File("src/test/java/net/nicoulaj/compilecommand/compacttests");
+
+    private static final File COMPACT_TEST_CASES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/compacttests");
+
+    private static final File RELEASE_TEST_CASES_SOURCES = new File("src/test/java/net/nicoulaj/compilecommand/releasetests");
+
+    private static final File RELEASE_TEST_CASES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/releasetests");
+
+    private static final File RELEASES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/releases");
+
+    private static final File PROFILE_TEST_SOURCES = new File("src/test/java/net/nicoulaj/compilecommand/profiletests");
+
+    private static final File PROFILE_TEST_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/profiletests");
+
+    private static final String DIRECTIVES_PATH = "META-INF/compiler_directives.json";
+
     @DataProvider
     public Object[][] testcases() throws IOException {
         return concat(getDataProvider(TEST_CASES_SOURCES, TEST_CASES_RESOURCES),
@@ -58,6 +91,17 @@ public final class CompileCommandProcessorTest {
                       Object[].class);
     }
 
+    @DataProvider
+    public Object[][] directivesTestcases() throws IOException {
+        final List<Object[]> data = new ArrayList<Object[]>();
+        for (Object[] testcase : getDataProvider(TEST_CASES_SOURCES, DIRECTIVES_RESOURCES))
+            if (((File) testcase[1]).exists())
+                data.add(testcase);
+        return concat(data.toArray(new Object[data.size()][]),
+                      getDataProvider(DIRECTIVES_TEST_CASES_SOURCES, DIRECTIVES_TEST_CASES_RESOURCES),
+                      Object[].class);
+    }
+
     private Object[][] getDataProvider(File sourceDir, File resourceDir) throws IOException {
         final List<Object[]> data = new ArrayList<Object[]>();
         final File[] sources = sourceDir.listFiles();
@@ -78,4 +122,146 @@ public final class CompileCommandProcessorTest {
         assertFalse(compilation.hasWarnings(), "compilation has warnings");
         assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT)).hasContentEqualTo(expected);
     }
+
+    @Test(dataProvider = "directivesTestcases")
+    public void testDirectives(File source, File expected) {
+        final Report compilation = JAVAC.compile(source, String.format("-A%s=%s", COMPILE_COMMAND_DIRECTIVES_PATH_OPTION, DIRECTIVES_PATH));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertThat(compilation.getDiagnostics().toString()).doesNotContain("only can not be written");
+        assertThat(new File(compilation.getClassesDirectory(), DIRECTIVES_PATH)).hasContentEqualTo(expected);
+    }
+
+    @Test
+    public void testPackageAnnotations() {
+        final List<String> sources = new ArrayList<String>();
+        final File[] files = PACKAGE_TEST_SOURCES.listFiles();
+        if (files == null) throw new IllegalArgumentException("No source in " + PACKAGE_TEST_SOURCES);
+        for (File source : files)
+            sources.add(source.toString());
+        final Report compilation = JAVAC.compile(sources, Collections.<String>emptyList());
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertFalse(compilation.hasWarnings(), "compilation has warnings");
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT))
+            .hasContentEqualTo(new File(PACKAGE_TEST_RESOURCES, "hotspot_compiler"));
+    }
+
+    @DataProvider
+    public Object[][] compactTestcases() throws IOException {
+        return getDataProvider(COMPACT_TEST_CASES_SOURCES, COMPACT_TEST_CASES_RESOURCES);
+    }
+
+    @Test(dataProvider = "compactTestcases")
+    public void testCompact(File source, File expected) {
+        final Report compilation = JAVAC.compile(source, String.format("-A%s=true", COMPILE_COMMAND_COMPACT_OPTION));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertFalse(compilation.hasWarnings(), "compilation has warnings");
+        assertThat(compilation.getDiagnostics().toString()).contains("Compact mode saved");
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT)).hasContentEqualTo(expected);
+    }
+
+    @DataProvider
+    public Object[][] releaseTestcases() throws IOException {
+        return getDataProvider(RELEASE_TEST_CASES_SOURCES, RELEASE_TEST_CASES_RESOURCES);
+    }
+
+    @Test(dataProvider = "releaseTestcases")
+    public void testRelease(File source, File expected) {
+        final Report compilation = JAVAC.compile(source, String.format("-A%s=22", COMPILE_COMMAND_TARGET_RELEASE_OPTION));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertFalse(compilation.hasWarnings(), "compilation has warnings");
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT)).hasContentEqualTo(expected);
+    }
+
+    @Test(dataProvider = "releaseTestcases")
+    public void testUnsupportedRelease(File source, File expected) {
+        final Report compilation = JAVAC.compile(source, String.format("-A%s=11", COMPILE_COMMAND_TARGET_RELEASE_OPTION));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertTrue(compilation.hasWarnings(), "compilation must have warnings");
+        assertThat(compilation.getDiagnostics().toString())
+            .contains("requires JDK 17, the targeted release is 11")
+            .contains("requires JDK 22, the targeted release is 11");
+    }
+
+    @Test
+    public void testReleases() {
+        final Report compilation = JAVAC.compile(new File(RELEASE_TEST_CASES_SOURCES, "Test01.java"),
+                                                 String.format("-A%s=11,17,22", COMPILE_COMMAND_RELEASES_OPTION));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertFalse(compilation.hasWarnings(), "compilation has warnings");
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT))
+            .hasContentEqualTo(new File(RELEASE_TEST_CASES_RESOURCES, "Test01"));
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT + "-11"))
+            .hasContentEqualTo(new File(RELEASES_RESOURCES, "hotspot_compiler-11"));
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT + "-17"))
+            .hasContentEqualTo(new File(RELEASES_RESOURCES, "hotspot_compiler-17"));
+        assertThat(new File(compilation.getClassesDirectory(), COMPILE_COMMAND_FILE_PATH_DEFAULT + "-22"))
+            .hasContentEqualTo(new File(RELEASE_TEST_CASES_RESOURCES, "Test01"));
+    }
+
+    @Test
+    public void testProfiles() {
+        final Report compilation = JAVAC.compile(new File(PROFILE_TEST_SOURCES, "Test01.java"));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertFalse(compilation.hasWarnings(), "compilation has warnings");
+        for (String file : new String[]{"hotspot_compiler", "hotspot_compiler.low-latency", "hotspot_compiler.production"})
+            assertThat(new File(compilation.getClassesDirectory(), "META-INF/" + file))
+                .hasContentEqualTo(new File(PROFILE_TEST_RESOURCES, file));
+    }
+
+    @Test
+    public void testProfilesWithDirectives() {
+        final Report compilation = JAVAC.compile(new File(PROFILE_TEST_SOURCES, "Test01.java"),
+                                                 String.format("-A%s=%s", COMPILE_COMMAND_DIRECTIVES_PATH_OPTION, DIRECTIVES_PATH));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertTrue(compilation.hasWarnings(), "compilation must have warnings");
+        assertThat(compilation.getDiagnostics().toString())
+            .contains("Hint \"inline net.nicoulaj.compilecommand.profiletests.Test01::method02 ()V\" for profile low-latency not written to " + DIRECTIVES_PATH)
+            .doesNotContain("Test01::method01");
+    }
+
+    @Test
+    public void testProfilesSingleCompiler() throws IOException {
+        final Report compilation = JAVAC.compile(new File(PROFILE_TEST_SOURCES, "Test02.java"));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertTrue(compilation.hasWarnings(), "compilation must have warnings");
+        assertThat(compilation.getDiagnostics().toString())
+            .contains("Hint \"inline net.nicoulaj.compilecommand.profiletests.Test02::method02 ()V\" for C2 only and profile low-latency can not be written");
+        assertThat(readFileToString(new File(compilation.getClassesDirectory(), "META-INF/hotspot_compiler.low-latency"), "UTF-8"))
+            .contains("Test02::method01")
+            .doesNotContain("Test02::method02");
+    }
+
+    @DataProvider
+    public Object[][] invalidTypedOptions() {
+        return new Object[][]{
+            {"@MaxNodeLimit(999)", "@MaxNodeLimit value 999 is out of range [1000, 715827882]"},
+            {"@RepeatCompilation(-1)", "@RepeatCompilation value -1 is out of range [0, 2147483647]"},
+            {"@CompileThresholdScaling(-0.5)", "@CompileThresholdScaling value -0.5 is out of range"},
+            {"@Blackhole", "@Blackhole method must be static and return void"},
+            {"@DisableIntrinsic(\"hashCode\")", "@DisableIntrinsic value \"hashCode\" is not an intrinsic identifier"},
+            {"@ControlIntrinsic", "@ControlIntrinsic must list at least one intrinsic"},
+            {"@MemLimit(-1)", "@MemLimit value -1 is out of range"},
+            {"@Profile(\"low latency\") @Inline", "@Profile value \"low latency\" must only contain letters, digits, _ and -"}
+        };
+    }
+
+    @Test(dataProvider = "invalidTypedOptions")
+    public void testInvalidTypedOption(String annotation, String error) throws IOException {
+        final File source = new File("target/test-invalid/" + System.nanoTime() + "/InvalidTypedOption.java");
+        writeStringToFile(source,
+                          "import net.nicoulaj.compilecommand.annotations.*;\n" +
+                          "public class InvalidTypedOption {\n" +
+                          "    " + annotation + " public void method01() {}\n" +
+                          "}\n",
+                          "UTF-8");
+        final Report compilation = JAVAC.compile(source);
+        assertTrue(compilation.hasErrors(), "compilation must have errors");
+        assertThat(compilation.getDiagnostics().toString()).contains(error);
+    }
 }
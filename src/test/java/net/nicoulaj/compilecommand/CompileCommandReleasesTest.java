@@ -0,0 +1,71 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import org.testng.annotations.Test;
+
+import static net.nicoulaj.compilecommand.CompileCommandReleases.getMinimumRelease;
+import static net.nicoulaj.compilecommand.CompileCommandReleases.isSupported;
+import static net.nicoulaj.compilecommand.CompileCommandReleases.translate;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompileCommandReleases}.
+ */
+public class CompileCommandReleasesTest {
+
+    @Test
+    public void testMinimumRelease()
+    {
+        assertEquals(getMinimumRelease("quiet"), 8);
+        assertEquals(getMinimumRelease("inline net.nicoulaj.Foo::a ()V"), 8);
+        assertEquals(getMinimumRelease("option net.nicoulaj.Foo::a ()V intx MaxNodeLimit 1000"), 8);
+        assertEquals(getMinimumRelease("option net.nicoulaj.Foo::a ()V ccstrlist DisableIntrinsic _hashCode"), 9);
+        assertEquals(getMinimumRelease("option net.nicoulaj.Foo::a ccstrlist ControlIntrinsic -_hashCode"), 15);
+        assertEquals(getMinimumRelease("option net.nicoulaj.Foo::a ()V PrintInlining,DisableIntrinsic=_hashCode"), 9);
+        assertEquals(getMinimumRelease("DisableIntrinsic net.nicoulaj.Foo::a _hashCode"), 16);
+        assertEquals(getMinimumRelease("blackhole net.nicoulaj.Foo::a ()V"), 17);
+        assertEquals(getMinimumRelease("MemLimit net.nicoulaj.Foo::a ()V 1000~stop"), 22);
+        assertEquals(getMinimumRelease("MemStat net.nicoulaj.Foo::a ()V print"), 22);
+    }
+
+    @Test
+    public void testSupported()
+    {
+        assertTrue(isSupported("blackhole net.nicoulaj.Foo::a ()V", 17));
+        assertFalse(isSupported("blackhole net.nicoulaj.Foo::a ()V", 11));
+    }
+
+    @Test
+    public void testTranslate()
+    {
+        assertEquals(translate("inline net.nicoulaj.Foo::a ()V", 8), "inline net.nicoulaj.Foo::a ()V");
+        assertEquals(translate("blackhole net.nicoulaj.Foo::a ()V", 21), "blackhole net.nicoulaj.Foo::a ()V");
+        assertNull(translate("blackhole net.nicoulaj.Foo::a ()V", 11));
+        assertEquals(translate("option net.nicoulaj.Foo::a ()V ccstrlist ControlIntrinsic +_dsin -_dcos -_dtan", 17),
+                     "option net.nicoulaj.Foo::a ()V ccstrlist ControlIntrinsic +_dsin -_dcos -_dtan");
+        assertEquals(translate("option net.nicoulaj.Foo::a ()V ccstrlist ControlIntrinsic +_dsin -_dcos -_dtan", 11),
+                     "option net.nicoulaj.Foo::a ()V ccstrlist DisableIntrinsic _dcos _dtan");
+        assertEquals(translate("option net.nicoulaj.Foo::* ccstrlist ControlIntrinsic -_dcos", 11),
+                     "option net.nicoulaj.Foo::* ccstrlist DisableIntrinsic _dcos");
+        assertNull(translate("option net.nicoulaj.Foo::a ()V ccstrlist ControlIntrinsic +_dsin", 11));
+        assertNull(translate("option net.nicoulaj.Foo::a ()V ccstrlist ControlIntrinsic -_dcos", 8));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import net.nicoulaj.compilecommand.annotations.TargetCompiler;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompilerDirectives}.
+ */
+public class CompilerDirectivesTest {
+
+    @Test
+    public void test()
+    {
+        final CompilerDirectives directives = new CompilerDirectives();
+        assertTrue(directives.add("quiet"));
+        assertTrue(directives.add("inline net.nicoulaj.Foo::a (ILjava.lang.String;)V"));
+        assertTrue(directives.add("dontinline net.nicoulaj.Foo$Bar::b ()I"));
+        assertTrue(directives.add("exclude net.nicoulaj.Foo::c ()V"));
+        assertTrue(directives.add("print net.nicoulaj.Foo::c ()V"));
+        assertTrue(directives.add("option net.nicoulaj.Foo::d ()V Vectorize"));
+        assertTrue(directives.add("option net.nicoulaj.Foo::d ()V intx MaxNodeLimit 1000"));
+        assertFalse(directives.add("option net.nicoulaj.Foo::d ()V UnknownFlag"));
+        assertFalse(directives.add("unknown net.nicoulaj.Foo::d ()V"));
+
+        assertEquals(directives.getSkipped().size(), 2);
+        assertEquals(directives.size(), 3);
+        assertEquals(directives.toJson(),
+                     "[\n" +
+                     "  {\n" +
+                     "    \"match\": \"net/nicoulaj/Foo.c()V\",\n" +
+                     "    \"Exclude\": true,\n" +
+                     "    \"PrintAssembly\": true,\n" +
+                     "    \"inline\": [\"+net/nicoulaj/Foo.a(ILjava/lang/String;)V\", \"-net/nicoulaj/Foo$Bar.b()I\"]\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"net/nicoulaj/Foo.d()V\",\n" +
+                     "    \"MaxNodeLimit\": 1000,\n" +
+                     "    \"Vectorize\": true,\n" +
+                     "    \"inline\": [\"+net/nicoulaj/Foo.a(ILjava/lang/String;)V\", \"-net/nicoulaj/Foo$Bar.b()I\"]\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"*.*\",\n" +
+                     "    \"inline\": [\"+net/nicoulaj/Foo.a(ILjava/lang/String;)V\", \"-net/nicoulaj/Foo$Bar.b()I\"]\n" +
+                     "  }\n" +
+                     "]\n");
+    }
+
+    @Test
+    public void testCompileOnly()
+    {
+        final CompilerDirectives directives = new CompilerDirectives();
+        assertTrue(directives.add("compileonly net.nicoulaj.Foo::a ()V"));
+        assertTrue(directives.add("log net.nicoulaj.Foo::b ()V"));
+        assertEquals(directives.toJson(),
+                     "[\n" +
+                     "  {\n" +
+                     "    \"match\": \"net/nicoulaj/Foo.a()V\",\n" +
+                     "    \"Exclude\": false\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"net/nicoulaj/Foo.b()V\",\n" +
+                     "    \"Exclude\": true,\n" +
+                     "    \"Log\": true\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"*.*\",\n" +
+                     "    \"Exclude\": true\n" +
+                     "  }\n" +
+                     "]\n");
+    }
+
+    @Test
+    public void testIntrinsics()
+    {
+        final CompilerDirectives directives = new CompilerDirectives();
+        assertTrue(directives.add("option net.nicoulaj.Foo::a ()V ccstrlist DisableIntrinsic _hashCode _getClass"));
+        assertTrue(directives.add("option net.nicoulaj.Foo::b ()V ccstrlist ControlIntrinsic +_dsin -_dcos"));
+        assertFalse(directives.add("blackhole net.nicoulaj.Foo::c ()V"));
+        assertEquals(directives.toJson(),
+                     "[\n" +
+                     "  {\n" +
+                     "    \"match\": \"net/nicoulaj/Foo.a()V\",\n" +
+                     "    \"DisableIntrinsic\": \"_hashCode,_getClass\"\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"net/nicoulaj/Foo.b()V\",\n" +
+                     "    \"ControlIntrinsic\": \"+_dsin,-_dcos\"\n" +
+                     "  }\n" +
+                     "]\n");
+    }
+
+    @Test
+    public void testOverlappingPatterns()
+    {
+        final CompilerDirectives directives = new CompilerDirectives();
+        assertTrue(directives.add("print p.Foo::*"));
+        assertTrue(directives.add("log p.Foo::bar ()V"));
+        assertTrue(directives.add("option p.Foo::bar ()V intx MaxNodeLimit 2000"));
+        assertTrue(directives.add("option p.Foo::* intx MaxNodeLimit 1000", TargetCompiler.C2));
+        assertTrue(directives.add("inline p.Foo::*"));
+        assertTrue(directives.add("dontinline p.Foo::bar ()V"));
+        assertTrue(directives.add("exclude p.*::*"));
+        assertEquals(directives.toJson(),
+                     "[\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/Foo.bar()V\",\n" +
+                     "    \"Exclude\": true,\n" +
+                     "    \"Log\": true,\n" +
+                     "    \"MaxNodeLimit\": 2000,\n" +
+                     "    \"PrintAssembly\": true,\n" +
+                     "    \"inline\": [\"-p/Foo.bar()V\", \"+p/Foo.*\"]\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/Foo.*\",\n" +
+                     "    \"Exclude\": true,\n" +
+                     "    \"PrintAssembly\": true,\n" +
+                     "    \"c2\": {\n" +
+                     "      \"MaxNodeLimit\": 1000\n" +
+                     "    },\n" +
+                     "    \"inline\": [\"-p/Foo.bar()V\", \"+p/Foo.*\"]\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/*.*\",\n" +
+                     "    \"Exclude\": true,\n" +
+                     "    \"inline\": [\"-p/Foo.bar()V\", \"+p/Foo.*\"]\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"*.*\",\n" +
+                     "    \"inline\": [\"-p/Foo.bar()V\", \"+p/Foo.*\"]\n" +
+                     "  }\n" +
+                     "]\n");
+    }
+
+    @Test
+    public void testOverlappingCompileOnly()
+    {
+        final CompilerDirectives directives = new CompilerDirectives();
+        assertTrue(directives.add("compileonly p.Foo::bar ()V"));
+        assertTrue(directives.add("print p.Foo::*"));
+        assertTrue(directives.add("log p.Bar::baz ()V"));
+        assertTrue(directives.add("compileonly p.Bar::*"));
+        assertEquals(directives.toJson(),
+                     "[\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/Bar.baz()V\",\n" +
+                     "    \"Exclude\": false,\n" +
+                     "    \"Log\": true\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/Foo.bar()V\",\n" +
+                     "    \"Exclude\": false,\n" +
+                     "    \"PrintAssembly\": true\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/Bar.*\",\n" +
+                     "    \"Exclude\": false\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"p/Foo.*\",\n" +
+                     "    \"Exclude\": true,\n" +
+                     "    \"PrintAssembly\": true\n" +
+                     "  },\n" +
+                     "  {\n" +
+                     "    \"match\": \"*.*\",\n" +
+                     "    \"Exclude\": true\n" +
+                     "  }\n" +
+                     "]\n");
+    }
+
+    @Test
+    public void testCovers()
+    {
+        assertTrue(CompilerDirectives.covers("*.*", "p/Foo.bar()V"));
+        assertTrue(CompilerDirectives.covers("p/*.*", "p/Foo.*"));
+        assertTrue(CompilerDirectives.covers("p/Foo.*", "p/Foo.bar()V"));
+        assertTrue(CompilerDirectives.covers("p/Foo.bar", "p/Foo.bar()V"));
+        assertTrue(CompilerDirectives.covers("p/Foo.get*", "p/Foo.getX*"));
+        assertFalse(CompilerDirectives.covers("p/Foo.bar()V", "p/Foo.bar()V"));
+        assertFalse(CompilerDirectives.covers("p/Foo.bar()V", "p/Foo.*"));
+        assertFalse(CompilerDirectives.covers("p/Foo.bar()I", "p/Foo.bar()V"));
+        assertFalse(CompilerDirectives.covers("p/Foo*.*", "*Foo.*"));
+        assertFalse(CompilerDirectives.covers("p/Bar.*", "p/Foo.bar()V"));
+    }
+
+    @Test
+    public void testPattern()
+    {
+        assertEquals(CompilerDirectives.toPattern("net.nicoulaj.Foo"), "net/nicoulaj/Foo.*");
+        assertEquals(CompilerDirectives.toPattern("net.nicoulaj.Foo::<init>([J)V"), "net/nicoulaj/Foo.<init>([J)V");
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final CompilerDirectives directives = new CompilerDirectives();
+        assertTrue(directives.add("quiet"));
+        assertTrue(directives.isEmpty());
+        assertEquals(directives.toJson(), "[\n]\n");
+    }
+}
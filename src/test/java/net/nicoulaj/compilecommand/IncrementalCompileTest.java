@@ -22,18 +22,28 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import static java.util.Arrays.asList;
 import static java.util.Arrays.sort;
 import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_FILE_PATH_DEFAULT;
+import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_INCREMENTAL_BATCHED_OPTION;
 import static net.nicoulaj.compilecommand.CompileCommandProcessor.COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION;
 import static net.nicoulaj.compilecommand.JavaCompilationTester.Report;
 import static org.apache.commons.io.FilenameUtils.getBaseName;
 import static org.apache.commons.io.FilenameUtils.getExtension;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -45,8 +55,14 @@ public class IncrementalCompileTest {
 
     private static final File TEST_CASES_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/incrementaltests");
 
+    private static final File TEST_CASES_BATCHED_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/incrementaltests-batched");
+
     private static final File TEST_CASES_MERGED = new File("src/test/resources/net/nicoulaj/compilecommand/incrementaltests-merged");
 
+    private static final File PACKAGE_TEST_SOURCES = new File("src/test/java/net/nicoulaj/compilecommand/packagetests");
+
+    private static final File PACKAGE_TEST_RESOURCES = new File("src/test/resources/net/nicoulaj/compilecommand/packagetests");
+
     private static final String INCREMENTAL_FRAGMENTS = "INCREMENTAL_FRAGMENTS";
 
     @DataProvider
@@ -54,6 +70,11 @@ public class IncrementalCompileTest {
         return getDataProvider(TEST_CASES_SOURCES, TEST_CASES_RESOURCES, TEST_CASES_MERGED);
     }
 
+    @DataProvider
+    public Object[][] batchedTestcases() throws IOException {
+        return getDataProvider(TEST_CASES_SOURCES, TEST_CASES_BATCHED_RESOURCES, TEST_CASES_MERGED);
+    }
+
     private Object[][] getDataProvider(File sourceDir, File resourceDir, File mergedDir) {
         final List<Object[]> data = new ArrayList<Object[]>();
         final File[] sources = sourceDir.listFiles();
@@ -71,8 +92,21 @@ public class IncrementalCompileTest {
     @Test(dataProvider = "testcases")
     public void test(File source, File expected, File expectedMerged) throws IOException
     {
-        final Report compilation = JAVAC.compile(source,
-                                                 String.format("-A%s=%s", COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION, INCREMENTAL_FRAGMENTS));
+        assertIncrementalCompilation(source, expected, expectedMerged,
+                                     String.format("-A%s=%s", COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION, INCREMENTAL_FRAGMENTS));
+    }
+
+    @Test(dataProvider = "batchedTestcases")
+    public void testBatched(File source, File expected, File expectedMerged) throws IOException
+    {
+        assertIncrementalCompilation(source, expected, expectedMerged,
+                                     String.format("-A%s=%s", COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION, INCREMENTAL_FRAGMENTS),
+                                     String.format("-A%s=%s", COMPILE_COMMAND_INCREMENTAL_BATCHED_OPTION, true));
+    }
+
+    private void assertIncrementalCompilation(File source, File expected, File expectedMerged, String... options) throws IOException
+    {
+        final Report compilation = JAVAC.compile(source, options);
         assertTrue(compilation.isSuccessful(), "compilation failed");
         assertFalse(compilation.hasErrors(), "compilation has errors");
         assertFalse(compilation.hasWarnings(), "compilation has warnings");
@@ -91,6 +125,27 @@ public class IncrementalCompileTest {
         assertEquals(expectedMerge, merged);
     }
 
+    @Test
+    public void testPackageAnnotations() throws IOException
+    {
+        final List<String> sources = new ArrayList<String>();
+        final File[] files = PACKAGE_TEST_SOURCES.listFiles();
+        if (files == null) throw new IllegalArgumentException("No source in " + PACKAGE_TEST_SOURCES);
+        for (File source : files)
+            sources.add(source.toString());
+        final Report compilation = JAVAC.compile(sources, asList(String.format("-A%s=%s", COMPILE_COMMAND_INCREMENTAL_OUTPUT_OPTION, INCREMENTAL_FRAGMENTS)));
+        assertTrue(compilation.isSuccessful(), "compilation failed");
+        assertFalse(compilation.hasErrors(), "compilation has errors");
+        assertTrue(compilation.hasWarnings(), "compilation must have warnings");
+        assertTrue(compilation.getDiagnostics().toString().contains("@Inline on a package is expanded to the types of the package"),
+                   "package level hints must be reported");
+
+        final File fragmentsDir = new File(compilation.getClassesDirectory(), INCREMENTAL_FRAGMENTS);
+        final File hotspotCompilerFile = new File(fragmentsDir.getParent(), "hotspot_compiler");
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, hotspotCompilerFile);
+        assertThat(hotspotCompilerFile).hasContentEqualTo(new File(PACKAGE_TEST_RESOURCES, "hotspot_compiler"));
+    }
+
     private static Map<String, String> readFiles(File dir) throws IOException {
         Map<String, String> map = new HashMap<String, String>();
         File[] files = dir.listFiles();
@@ -105,6 +160,11 @@ public class IncrementalCompileTest {
     }
 
     private static String readFile(File file) throws IOException
+    {
+        return readFile(file, Charset.defaultCharset().name());
+    }
+
+    private static String readFile(File file, String charset) throws IOException
     {
         byte[] data = new byte[(int) file.length()];
         FileInputStream in = new FileInputStream(file);
@@ -120,7 +180,100 @@ public class IncrementalCompileTest {
         finally {
             in.close();
         }
-        return new String(data);
+        return new String(data, charset);
+    }
+
+    @Test
+    public void testMerge() throws IOException
+    {
+        final File fragmentsDir = new File("target/test-merge/" + System.nanoTime());
+        assertTrue(fragmentsDir.mkdirs(), "failed creating fragments directory");
+
+        final Random random = new Random(42);
+        final SortedSet<String> lines = new TreeSet<String>();
+        for (int i = 0; i < 500; i++) {
+            final PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(fragmentsDir, "fragment-" + i)), "UTF-8"));
+            try {
+                if (i % 100 == 0)
+                    pw.println("quiet");
+                for (int j = 0; j < 3; j++) {
+                    final String line = "inline net.nicoulaj.compilecommand.Test::method" + random.nextInt(1000) + " ()V \u00e9";
+                    lines.add(line);
+                    pw.println(line);
+                }
+            } finally {
+                pw.close();
+            }
+        }
+
+        final StringBuilder expected = new StringBuilder("quiet").append(System.getProperty("line.separator"));
+        for (String line : lines)
+            expected.append(line).append(System.getProperty("line.separator"));
+
+        final File inMemory = new File(fragmentsDir.getParent(), fragmentsDir.getName() + "-in-memory");
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, inMemory);
+        assertEquals(readFile(inMemory, "UTF-8"), expected.toString());
+
+        final File spilled = new File(fragmentsDir.getParent(), fragmentsDir.getName() + "-spilled");
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, spilled, Charset.forName("UTF-8"), 1, 7);
+        assertEquals(readFile(spilled, "UTF-8"), expected.toString());
+
+        final File parallel = new File(fragmentsDir.getParent(), fragmentsDir.getName() + "-parallel");
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, parallel, Charset.forName("UTF-8"), 4);
+        assertEquals(readFile(parallel, "UTF-8"), expected.toString());
+
+        final File parallelSpilled = new File(fragmentsDir.getParent(), fragmentsDir.getName() + "-parallel-spilled");
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, parallelSpilled, Charset.forName("UTF-8"), 4, 7);
+        assertEquals(readFile(parallelSpilled, "UTF-8"), expected.toString());
+    }
+
+    @Test
+    public void testIndexedMerge() throws IOException
+    {
+        final File fragmentsDir = new File("target/test-merge/" + System.nanoTime());
+        assertTrue(fragmentsDir.mkdirs(), "failed creating fragments directory");
+
+        final long old = System.currentTimeMillis() - 60000;
+        for (int i = 0; i < 50; i++)
+            writeFragment(new File(fragmentsDir, "fragment-" + i), old, i == 0 ? "quiet" : null, "inline net.nicoulaj.compilecommand.Test::method" + i + " ()V");
+
+        final Charset utf8 = Charset.forName("UTF-8");
+        final File indexFile = IncrementalCompilationHelper.getIndexFile(fragmentsDir);
+        final File merged = new File(fragmentsDir.getParent(), fragmentsDir.getName() + "-merged");
+        final File indexed = new File(fragmentsDir.getParent(), fragmentsDir.getName() + "-indexed");
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, merged, utf8);
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, indexed, utf8, indexFile);
+        assertEquals(readFile(indexed, "UTF-8"), readFile(merged, "UTF-8"));
+
+        FragmentIndex index = FragmentIndex.load(indexFile);
+        assertFalse(index.update(fragmentsDir.listFiles(), utf8));
+        assertEquals(index.getReadCount(), 0);
+
+        writeFragment(new File(fragmentsDir, "fragment-3"), old + 30000, null, "dontinline net.nicoulaj.compilecommand.Test::method3 ()V");
+        assertTrue(new File(fragmentsDir, "fragment-4").delete());
+        writeFragment(new File(fragmentsDir, "fragment-50"), old, null, "exclude net.nicoulaj.compilecommand.Test::method50 ()V");
+
+        index = FragmentIndex.load(indexFile);
+        assertTrue(index.update(fragmentsDir.listFiles(), utf8));
+        assertEquals(index.getReadCount(), 2);
+        assertEquals(index.getRemovedCount(), 1);
+
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, merged, utf8);
+        IncrementalCompilationHelper.mergeIncrementalFiles(fragmentsDir, indexed, utf8, indexFile);
+        assertEquals(readFile(indexed, "UTF-8"), readFile(merged, "UTF-8"));
+    }
+
+    private static void writeFragment(File file, long lastModified, String... lines) throws IOException
+    {
+        final PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            for (String line : lines)
+                if (line != null)
+                    pw.println(line);
+        } finally {
+            pw.close();
+        }
+        assertTrue(file.setLastModified(lastModified), "failed setting last modified time");
     }
 
     @Test(expectedExceptions = { NullPointerException.class }, expectedExceptionsMessageRegExp = "Input directory must not be null")
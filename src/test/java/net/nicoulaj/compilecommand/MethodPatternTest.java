@@ -0,0 +1,64 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link MethodPattern}.
+ */
+public class MethodPatternTest {
+
+    @Test
+    public void testParse()
+    {
+        final MethodPattern pattern = MethodPattern.parse("option net.nicoulaj.Foo$Bar::a (ILjava.lang.String;)V intx MaxNodeLimit 1000");
+        assertEquals(pattern.getCommand(), "option");
+        assertEquals(pattern.getClassName(), "net.nicoulaj.Foo$Bar");
+        assertEquals(pattern.getMethodName(), "a");
+        assertEquals(pattern.getSignature(), "(ILjava/lang/String;)V");
+
+        final MethodPattern slashes = MethodPattern.parse("inline net/nicoulaj/Foo.a(I)V");
+        assertEquals(slashes.getClassName(), "net.nicoulaj.Foo");
+        assertEquals(slashes.getMethodName(), "a");
+        assertEquals(slashes.getSignature(), "(I)V");
+
+        assertNull(MethodPattern.parse("inline net.nicoulaj.Foo::*").getSignature());
+        assertNull(MethodPattern.parse("quiet"));
+        assertNull(MethodPattern.parse("# inline net.nicoulaj.Foo::a"));
+    }
+
+    @Test
+    public void testMatches()
+    {
+        assertTrue(MethodPattern.parse("inline net.nicoulaj.Foo::a (I)V").matches("net.nicoulaj.Foo", "a", "(I)V"));
+        assertTrue(MethodPattern.parse("inline net.nicoulaj.Foo::a (I)V").matches("net/nicoulaj/Foo", "a", "(I)V"));
+        assertFalse(MethodPattern.parse("inline net.nicoulaj.Foo::a (I)V").matches("net.nicoulaj.Foo", "a", "(J)V"));
+        assertTrue(MethodPattern.parse("inline net.nicoulaj.Foo::a").matches("net.nicoulaj.Foo", "a", "(J)V"));
+        assertTrue(MethodPattern.parse("inline net.nicoulaj.Foo::*").matches("net.nicoulaj.Foo", "b", "()V"));
+        assertFalse(MethodPattern.parse("inline net.nicoulaj.Foo::*").matches("net.nicoulaj.Foo$Bar", "b", "()V"));
+        assertTrue(MethodPattern.parse("inline net.nicoulaj.*::get*").matches("net.nicoulaj.Foo", "getA", "()I"));
+        assertTrue(MethodPattern.parse("inline *Foo::*A").matches("net.nicoulaj.Foo", "getA", "()I"));
+        assertTrue(MethodPattern.parse("inline *Foo::*et*").matches("net.nicoulaj.Foo", "getA", "()I"));
+        assertFalse(MethodPattern.parse("inline *Foo::*et*").matches("net.nicoulaj.Bar", "getA", "()I"));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.compacttests;
+
+import net.nicoulaj.compilecommand.annotations.DontInline;
+import net.nicoulaj.compilecommand.annotations.Inline;
+import net.nicoulaj.compilecommand.annotations.MaxNodeLimit;
+
+import java.util.Comparator;
+
+public class Test01 implements Comparator<String> {
+
+    @DontInline
+    public Test01() {
+    }
+
+    @DontInline
+    public Test01(int a) {
+    }
+
+    @DontInline
+    @MaxNodeLimit(10000)
+    public void method01() {
+    }
+
+    @DontInline
+    @MaxNodeLimit(10000)
+    public void method01(int a) {
+    }
+
+    @DontInline
+    @MaxNodeLimit(20000)
+    public void method01(long a) {
+    }
+
+    @Inline
+    public void method02() {
+    }
+
+    @DontInline
+    public void method02(int a) {
+    }
+
+    @Inline
+    public void method03() {
+    }
+
+    public void method03(int a) {
+    }
+
+    @MaxNodeLimit(10000)
+    public void method04() {
+    }
+
+    @MaxNodeLimit(10000)
+    public void method04(Object a) {
+    }
+
+    @Inline
+    public int compare(String o1, String o2) {
+        return 0;
+    }
+
+    @Inline
+    public int compare(int o1, int o2) {
+        return 0;
+    }
+}
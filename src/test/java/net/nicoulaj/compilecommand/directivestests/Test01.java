@@ -0,0 +1,42 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.directivestests;
+
+import net.nicoulaj.compilecommand.annotations.DontInline;
+import net.nicoulaj.compilecommand.annotations.Exclude;
+import net.nicoulaj.compilecommand.annotations.Inline;
+import net.nicoulaj.compilecommand.annotations.Option;
+
+import static net.nicoulaj.compilecommand.annotations.TargetCompiler.C1;
+import static net.nicoulaj.compilecommand.annotations.TargetCompiler.C2;
+
+public class Test01 {
+
+    @Inline(compiler = C2)
+    @DontInline(compiler = C1)
+    public void method01() {
+    }
+
+    @Exclude(compiler = C2)
+    @Option("PrintInlining")
+    public void method02() {
+    }
+
+    @Inline
+    public void method03() {
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.profiletests;
+
+import net.nicoulaj.compilecommand.annotations.DontInline;
+import net.nicoulaj.compilecommand.annotations.Exclude;
+import net.nicoulaj.compilecommand.annotations.Inline;
+import net.nicoulaj.compilecommand.annotations.Profile;
+
+public class Test01 {
+
+    @Inline
+    public void method01() {
+    }
+
+    @Inline
+    @Profile("low-latency")
+    public void method02() {
+    }
+
+    @Exclude
+    @Profile("production")
+    public void method03() {
+    }
+
+    @DontInline
+    @Profile({"low-latency", "production"})
+    public void method04() {
+    }
+
+    @Profile("production")
+    public static class Nested {
+
+        @Inline
+        public void method05() {
+        }
+    }
+}
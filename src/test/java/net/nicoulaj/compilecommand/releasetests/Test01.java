@@ -0,0 +1,46 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.releasetests;
+
+import net.nicoulaj.compilecommand.annotations.Blackhole;
+import net.nicoulaj.compilecommand.annotations.ControlIntrinsic;
+import net.nicoulaj.compilecommand.annotations.DisableIntrinsic;
+import net.nicoulaj.compilecommand.annotations.MemLimit;
+import net.nicoulaj.compilecommand.annotations.MemStat;
+
+@MemStat
+public class Test01 {
+
+    @Blackhole
+    public static void method01(int a, Object b) {
+    }
+
+    @DisableIntrinsic({"_hashCode", "_getClass"})
+    public int method02(Object a) {
+        return a.hashCode();
+    }
+
+    @ControlIntrinsic(enable = "_dsin", disable = "_dcos")
+    public double method03(double a) {
+        return Math.sin(a) + Math.cos(a);
+    }
+
+    @MemLimit(value = 104857600, crash = true)
+    @MemStat(print = true)
+    public void method04() {
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.testcases;
+
+import net.nicoulaj.compilecommand.annotations.DontInline;
+import net.nicoulaj.compilecommand.annotations.Inline;
+import net.nicoulaj.compilecommand.annotations.MaxNodeLimit;
+import net.nicoulaj.compilecommand.annotations.Print;
+
+@Print
+@DontInline
+@MaxNodeLimit(10000)
+public class Test27 {
+
+    public Test27() {
+    }
+
+    @Inline
+    public void method01() {
+    }
+
+    @MaxNodeLimit(20000)
+    public void method02(int a) {
+    }
+
+    @Inline
+    public static class Nested {
+
+        public void method01() {
+        }
+    }
+}
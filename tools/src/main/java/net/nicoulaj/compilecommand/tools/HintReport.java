@@ -0,0 +1,187 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.tools;
+
+import net.nicoulaj.compilecommand.MethodPattern;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The compilation events of the methods matched by a <code>hotspot_compiler</code> line, as found in compilation
+ * logs by {@link LogCompilationAnalyzer}.
+ */
+public final class HintReport {
+
+    /**
+     * Whether a hint took effect.
+     */
+    public enum Status {
+
+        /**
+         * The hint took effect every time it was observed: the method was always inlined for <code>inline</code>,
+         * never inlined for <code>dontinline</code>, never compiled nor inlined for <code>exclude</code>, or compiled
+         * for other commands.
+         */
+        HONORED,
+
+        /**
+         * The hint was overridden at least once, see the reasons of the inlining decisions.
+         */
+        NOT_HONORED,
+
+        /**
+         * No event involving the methods matched by the hint was found.
+         */
+        NOT_OBSERVED
+    }
+
+    private final String line;
+
+    private final MethodPattern pattern;
+
+    private int compilations;
+
+    private int deoptimizations;
+
+    private int inlined;
+
+    private int notInlined;
+
+    private final SortedMap<String, Integer> inlinedReasons = new TreeMap<String, Integer>();
+
+    private final SortedMap<String, Integer> notInlinedReasons = new TreeMap<String, Integer>();
+
+    HintReport(String line, MethodPattern pattern) {
+        this.line = line;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @return the <code>hotspot_compiler</code> line.
+     */
+    public String getLine() {
+        return line;
+    }
+
+    MethodPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the number of compilations of the matched methods.
+     */
+    public int getCompilations() {
+        return compilations;
+    }
+
+    /**
+     * @return the number of compilations of the matched methods made not entrant.
+     */
+    public int getDeoptimizations() {
+        return deoptimizations;
+    }
+
+    /**
+     * @return the number of call sites where a matched method was inlined.
+     */
+    public int getInlined() {
+        return inlined;
+    }
+
+    /**
+     * @return the number of call sites where a matched method was not inlined.
+     */
+    public int getNotInlined() {
+        return notInlined;
+    }
+
+    /**
+     * @return the number of call sites where a matched method was inlined, by reason.
+     */
+    public SortedMap<String, Integer> getInlinedReasons() {
+        return inlinedReasons;
+    }
+
+    /**
+     * @return the number of call sites where a matched method was not inlined, by reason.
+     */
+    public SortedMap<String, Integer> getNotInlinedReasons() {
+        return notInlinedReasons;
+    }
+
+    /**
+     * @return whether the hint took effect.
+     */
+    public Status getStatus() {
+        final String command = pattern.getCommand();
+        if (compilations == 0 && inlined == 0 && notInlined == 0)
+            return "exclude".equals(command) ? Status.HONORED : Status.NOT_OBSERVED;
+        if ("inline".equals(command))
+            return notInlined == 0 ? Status.HONORED : Status.NOT_HONORED;
+        if ("dontinline".equals(command))
+            return inlined == 0 ? (notInlined == 0 ? Status.NOT_OBSERVED : Status.HONORED) : Status.NOT_HONORED;
+        if ("exclude".equals(command))
+            return Status.NOT_HONORED;
+        return compilations == 0 ? Status.NOT_OBSERVED : Status.HONORED;
+    }
+
+    void compiled() {
+        compilations++;
+    }
+
+    void deoptimized() {
+        deoptimizations++;
+    }
+
+    void inlined(String reason) {
+        inlined++;
+        increment(inlinedReasons, reason);
+    }
+
+    void notInlined(String reason) {
+        notInlined++;
+        increment(notInlinedReasons, reason);
+    }
+
+    private static void increment(Map<String, Integer> counts, String reason) {
+        final String key = reason != null ? reason : "unknown";
+        final Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-12s %s%n" +
+                             "             compiled %d times, made not entrant %d times, inlined %d times%s, not inlined %d times%s",
+                             getStatus(), line, compilations, deoptimizations,
+                             inlined, format(inlinedReasons), notInlined, format(notInlinedReasons));
+    }
+
+    private static String format(Map<String, Integer> reasons) {
+        if (reasons.isEmpty())
+            return "";
+        final StringBuilder sb = new StringBuilder(" (");
+        for (Map.Entry<String, Integer> reason : reasons.entrySet()) {
+            if (sb.length() > 2)
+                sb.append(", ");
+            sb.append(reason.getKey()).append(": ").append(reason.getValue());
+        }
+        return sb.append(')').toString();
+    }
+}
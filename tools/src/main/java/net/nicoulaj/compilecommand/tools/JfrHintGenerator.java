@@ -0,0 +1,233 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.tools;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedObject;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Proposes compiler hints from Java Flight Recorder recordings, written as a <code>hotspot_compiler</code> fragment
+ * that can be merged with {@link IncrementalCompilationHelper}.
+ * <p>Recordings are streamed with {@link RecordingFile}. The events used are <code>jdk.ExecutionSample</code> to
+ * find the hot methods, <code>jdk.CompilerInlining</code> (disabled in the default settings of JFR),
+ * <code>jdk.Deoptimization</code> and <code>jdk.Compilation</code>. Two kinds of hints are proposed:</p>
+ * <ul>
+ * <li><code>inline</code> for hot methods that often failed to be inlined for reasons a forced inlining can
+ * override, leaving out the failures due to the size of the method or that no command can change,</li>
+ * <li><code>dontinline</code> for methods that keep being deoptimized, so that their traps only invalidate their own
+ * compilation instead of the compilations of all their callers.</li>
+ * </ul>
+ */
+public final class JfrHintGenerator {
+
+    /**
+     * Parts of the inlining failure messages that forcing inlining can not or should not override.
+     */
+    private static final String[] PERMANENT_FAILURES = {
+        "too big", "too large", "native", "abstract", "not inlineable", "no static binding", "CompileCommand",
+        "unloaded", "not reached", "recursive"
+    };
+
+    private final int minSamples;
+
+    private final int minInliningFailures;
+
+    private final int minDeoptimizations;
+
+    private final Map<String, Integer> samples = new HashMap<String, Integer>();
+
+    private final Map<String, SortedMap<String, Integer>> inliningFailures = new HashMap<String, SortedMap<String, Integer>>();
+
+    private final Map<String, SortedMap<String, Integer>> deoptimizations = new HashMap<String, SortedMap<String, Integer>>();
+
+    private final Map<String, Integer> compilations = new HashMap<String, Integer>();
+
+    /**
+     * @param minSamples          the minimum number of execution samples of a method to propose inlining it.
+     * @param minInliningFailures the minimum number of failed inlinings of a method to propose inlining it.
+     * @param minDeoptimizations  the minimum number of deoptimizations of a method to propose not inlining it.
+     */
+    public JfrHintGenerator(int minSamples, int minInliningFailures, int minDeoptimizations) {
+        this.minSamples = minSamples;
+        this.minInliningFailures = minInliningFailures;
+        this.minDeoptimizations = minDeoptimizations;
+    }
+
+    /**
+     * Read the events of a recording.
+     *
+     * @param recording the recording file.
+     * @throws IOException if the recording could not be read.
+     */
+    public void analyze(File recording) throws IOException {
+        final RecordingFile file = new RecordingFile(recording.toPath());
+        try {
+            while (file.hasMoreEvents())
+                analyze(file.readEvent());
+        } finally {
+            file.close();
+        }
+    }
+
+    private void analyze(RecordedEvent event) {
+        final String type = event.getEventType().getName();
+        if ("jdk.ExecutionSample".equals(type)) {
+            final RecordedStackTrace stackTrace = event.getStackTrace();
+            if (stackTrace != null && !stackTrace.getFrames().isEmpty()) {
+                final RecordedFrame frame = stackTrace.getFrames().get(0);
+                if (frame.isJavaFrame())
+                    sampled(getKey(frame.getMethod()));
+            }
+        } else if ("jdk.CompilerInlining".equals(type)) {
+            final RecordedObject callee = event.getValue("callee");
+            if (callee != null && !event.getBoolean("succeeded"))
+                inliningFailed(getKey(callee.getString("type"), callee.getString("name"), callee.getString("descriptor")),
+                               event.getString("message"));
+        } else if ("jdk.Deoptimization".equals(type)) {
+            final RecordedMethod method = event.getValue("method");
+            if (method != null)
+                deoptimized(getKey(method), event.getString("reason"));
+        } else if ("jdk.Compilation".equals(type)) {
+            final RecordedMethod method = event.getValue("method");
+            if (method != null)
+                increment(compilations, getKey(method));
+        }
+    }
+
+    void sampled(String key) {
+        increment(samples, key);
+    }
+
+    void inliningFailed(String key, String message) {
+        increment(getCounts(inliningFailures, key), message != null ? message : "unknown");
+    }
+
+    void deoptimized(String key, String reason) {
+        increment(getCounts(deoptimizations, key), reason != null ? reason : "unknown");
+    }
+
+    /**
+     * @return the proposed hints, as a map of <code>hotspot_compiler</code> lines to the explanation of the hint.
+     */
+    public SortedMap<String, String> getHints() {
+        final SortedMap<String, String> hints = new TreeMap<String, String>();
+
+        for (Map.Entry<String, SortedMap<String, Integer>> entry : inliningFailures.entrySet()) {
+            final String key = entry.getKey();
+            final Integer sampleCount = samples.get(key);
+            if (sampleCount == null || sampleCount < minSamples || deoptimizations.containsKey(key))
+                continue;
+            int failures = 0;
+            boolean permanent = false;
+            for (Map.Entry<String, Integer> failure : entry.getValue().entrySet()) {
+                if (isPermanentFailure(failure.getKey())) {
+                    permanent = true;
+                    break;
+                }
+                failures += failure.getValue();
+            }
+            if (!permanent && failures >= minInliningFailures)
+                hints.put("inline " + key,
+                          String.format("%d execution samples, not inlined %d times %s", sampleCount, failures, entry.getValue()));
+        }
+
+        for (Map.Entry<String, SortedMap<String, Integer>> entry : deoptimizations.entrySet()) {
+            int count = 0;
+            for (Integer reasonCount : entry.getValue().values())
+                count += reasonCount;
+            if (count >= minDeoptimizations) {
+                final Integer compilationCount = compilations.get(entry.getKey());
+                hints.put("dontinline " + entry.getKey(),
+                          String.format("deoptimized %d times %s, compiled %d times",
+                                        count, entry.getValue(), compilationCount != null ? compilationCount : 0));
+            }
+        }
+
+        return hints;
+    }
+
+    private static boolean isPermanentFailure(String message) {
+        for (String failure : PERMANENT_FAILURES)
+            if (message.contains(failure))
+                return true;
+        return false;
+    }
+
+    private static String getKey(RecordedMethod method) {
+        return getKey(method.getType().getName(), method.getName(), method.getDescriptor());
+    }
+
+    /**
+     * @return the method descriptor in the format written by the annotation processor.
+     */
+    static String getKey(String type, String name, String descriptor) {
+        return type.replace('/', '.') + "::" + name + " " + descriptor.replace('/', '.');
+    }
+
+    private static SortedMap<String, Integer> getCounts(Map<String, SortedMap<String, Integer>> counts, String key) {
+        SortedMap<String, Integer> result = counts.get(key);
+        if (result == null)
+            counts.put(key, result = new TreeMap<String, Integer>());
+        return result;
+    }
+
+    private static void increment(Map<String, Integer> counts, String key) {
+        final Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Write the hints proposed from recordings to a <code>hotspot_compiler</code> fragment, and print their
+     * explanations.
+     *
+     * @param args the path of the fragment to write, followed by the paths of the recordings.
+     * @throws IOException if a file could not be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp compile-command-annotations-tools.jar " + JfrHintGenerator.class.getName()
+                               + " <output fragment> <recording.jfr>...");
+            System.exit(1);
+        }
+
+        final JfrHintGenerator generator = new JfrHintGenerator(Integer.getInteger("minSamples", 10),
+                                                                Integer.getInteger("minInliningFailures", 10),
+                                                                Integer.getInteger("minDeoptimizations", 5));
+        for (int i = 1; i < args.length; i++)
+            generator.analyze(new File(args[i]));
+
+        final SortedMap<String, String> hints = generator.getHints();
+        for (Map.Entry<String, String> hint : hints.entrySet())
+            System.out.println(hint.getKey() + System.getProperty("line.separator") + "    " + hint.getValue());
+
+        IncrementalCompilationHelper.writeLines(new File(args[0]), Charset.forName("UTF-8"), false, hints.keySet());
+        System.out.println("Wrote " + hints.size() + " hints to " + args[0]);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.tools;
+
+import net.nicoulaj.compilecommand.IncrementalCompilationHelper;
+import net.nicoulaj.compilecommand.MethodPattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Reports whether the lines of a <code>hotspot_compiler</code> file took effect, from the compilation logs written
+ * with <code>-XX:+UnlockDiagnosticVMOptions -XX:+LogCompilation</code>.
+ * <p>Logs are streamed with a StAX parser, only the identifiers of the current compile task and the methods of the
+ * compilations are kept in memory. The events correlated with the hints are:</p>
+ * <ul>
+ * <li><code>nmethod</code>: a method was compiled,</li>
+ * <li><code>make_not_entrant</code>: a compilation was invalidated, typically on deoptimization,</li>
+ * <li><code>call</code> followed by <code>inline_success</code> or <code>inline_fail</code>: a method was inlined or
+ * not at a call site, with the reason of the decision.</li>
+ * </ul>
+ */
+public final class LogCompilationAnalyzer {
+
+    private static final Map<String, String> PRIMITIVES = new HashMap<String, String>();
+
+    static {
+        PRIMITIVES.put("void", "V");
+        PRIMITIVES.put("boolean", "Z");
+        PRIMITIVES.put("byte", "B");
+        PRIMITIVES.put("char", "C");
+        PRIMITIVES.put("short", "S");
+        PRIMITIVES.put("int", "I");
+        PRIMITIVES.put("long", "J");
+        PRIMITIVES.put("float", "F");
+        PRIMITIVES.put("double", "D");
+    }
+
+    private final List<HintReport> reports = new ArrayList<HintReport>();
+
+    private final Map<String, List<HintReport>> matches = new HashMap<String, List<HintReport>>();
+
+    private final Map<String, String> compilations = new HashMap<String, String>();
+
+    private final Map<String, String> types = new HashMap<String, String>();
+
+    private final Map<String, String> classes = new HashMap<String, String>();
+
+    private final Map<String, String> methods = new HashMap<String, String>();
+
+    private String callee;
+
+    /**
+     * @param lines the lines of the <code>hotspot_compiler</code> file.
+     */
+    public LogCompilationAnalyzer(Iterable<String> lines) {
+        for (String line : lines) {
+            final MethodPattern pattern = MethodPattern.parse(line);
+            if (pattern != null)
+                reports.add(new HintReport(line, pattern));
+        }
+    }
+
+    /**
+     * @return a report for each line with a method pattern, in the order of the lines.
+     */
+    public List<HintReport> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * Analyze a compilation log. Events read before a parsing error, for instance in the log of a JVM that was
+     * killed, are still counted.
+     *
+     * @param in the log, not closed.
+     * @throws IOException if the log could not be read or parsed.
+     */
+    public void analyze(InputStream in) throws IOException {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            final XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext())
+                    if (reader.next() == START_ELEMENT)
+                        startElement(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed parsing compilation log: " + e.getMessage(), e);
+        }
+    }
+
+    private void startElement(XMLStreamReader reader) {
+        final String name = reader.getLocalName();
+        if ("task".equals(name)) {
+            types.clear();
+            classes.clear();
+            methods.clear();
+            callee = null;
+        } else if ("type".equals(name)) {
+            final String descriptor = PRIMITIVES.get(reader.getAttributeValue(null, "name"));
+            if (descriptor != null)
+                types.put(reader.getAttributeValue(null, "id"), descriptor);
+        } else if ("klass".equals(name)) {
+            final String className = reader.getAttributeValue(null, "name").replace('/', '.');
+            final String id = reader.getAttributeValue(null, "id");
+            classes.put(id, className);
+            types.put(id, (className.startsWith("[") ? className : "L" + className + ";").replace('.', '/'));
+        } else if ("method".equals(name)) {
+            final String key = getMethodKey(reader);
+            if (key != null)
+                methods.put(reader.getAttributeValue(null, "id"), key);
+        } else if ("call".equals(name)) {
+            callee = methods.get(reader.getAttributeValue(null, "method"));
+        } else if ("inline_success".equals(name) || "inline_fail".equals(name)) {
+            if (callee != null)
+                for (HintReport report : getReports(callee))
+                    if ("inline_success".equals(name))
+                        report.inlined(reader.getAttributeValue(null, "reason"));
+                    else
+                        report.notInlined(reader.getAttributeValue(null, "reason"));
+            callee = null;
+        } else if ("nmethod".equals(name)) {
+            final String method = reader.getAttributeValue(null, "method");
+            if (method != null) {
+                final String key = normalize(method);
+                compilations.put(reader.getAttributeValue(null, "compile_id"), key);
+                for (HintReport report : getReports(key))
+                    report.compiled();
+            }
+        } else if ("make_not_entrant".equals(name)) {
+            final String key = compilations.get(reader.getAttributeValue(null, "compile_id"));
+            if (key != null)
+                for (HintReport report : getReports(key))
+                    report.deoptimized();
+        }
+    }
+
+    /**
+     * @return the key of a <code>method</code> element of a compile task, in the format of the <code>method</code>
+     * attribute of <code>nmethod</code> elements, or <code>null</code> if one of its types is unknown.
+     */
+    private String getMethodKey(XMLStreamReader reader) {
+        final String holder = classes.get(reader.getAttributeValue(null, "holder"));
+        final String returnType = types.get(reader.getAttributeValue(null, "return"));
+        if (holder == null || returnType == null)
+            return null;
+
+        final StringBuilder sb = new StringBuilder(holder).append(' ')
+                                                           .append(reader.getAttributeValue(null, "name"))
+                                                           .append(" (");
+        final String arguments = reader.getAttributeValue(null, "arguments");
+        if (arguments != null) {
+            for (String argument : arguments.trim().split("\\s+")) {
+                final String type = types.get(argument);
+                if (type == null)
+                    return null;
+                sb.append(type);
+            }
+        }
+        return sb.append(')').append(returnType).toString();
+    }
+
+    private static String normalize(String method) {
+        final String[] parts = method.split(" ");
+        return parts.length == 3 ? parts[0].replace('/', '.') + " " + parts[1] + " " + parts[2].replace('.', '/') : method;
+    }
+
+    private List<HintReport> getReports(String key) {
+        List<HintReport> result = matches.get(key);
+        if (result == null) {
+            result = new ArrayList<HintReport>();
+            final String[] parts = key.split(" ");
+            if (parts.length == 3)
+                for (HintReport report : reports)
+                    if (report.getPattern().matches(parts[0], parts[1], parts[2]))
+                        result.add(report);
+            matches.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Print the report of a <code>hotspot_compiler</code> file for compilation logs.
+     *
+     * @param args the path of the <code>hotspot_compiler</code> file, followed by the paths of the logs.
+     * @throws IOException if a file could not be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java -jar compile-command-annotations-tools.jar <hotspot_compiler> <compilation log>...");
+            System.exit(1);
+        }
+
+        final SortedSet<String> lines = new TreeSet<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), "UTF-8"));
+        try {
+            IncrementalCompilationHelper.readLines(reader, lines);
+        } finally {
+            reader.close();
+        }
+
+        final LogCompilationAnalyzer analyzer = new LogCompilationAnalyzer(lines);
+        for (int i = 1; i < args.length; i++) {
+            final InputStream in = new BufferedInputStream(new FileInputStream(args[i]));
+            try {
+                analyzer.analyze(in);
+            } catch (IOException e) {
+                System.err.println("Warning: " + args[i] + " was only partially analyzed: " + e.getMessage());
+            } finally {
+                in.close();
+            }
+        }
+
+        for (HintReport report : analyzer.getReports())
+            System.out.println(report);
+    }
+}
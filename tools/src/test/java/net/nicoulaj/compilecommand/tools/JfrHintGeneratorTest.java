@@ -0,0 +1,95 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.tools;
+
+import jdk.jfr.Recording;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.SortedMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link JfrHintGenerator}.
+ */
+public class JfrHintGeneratorTest {
+
+    @Test
+    public void testHints()
+    {
+        final JfrHintGenerator generator = new JfrHintGenerator(2, 2, 2);
+        final String hot = JfrHintGenerator.getKey("a/A", "hot", "(Ljava/lang/String;)I");
+        final String cold = JfrHintGenerator.getKey("a/A", "cold", "()V");
+        final String big = JfrHintGenerator.getKey("a/A", "big", "()V");
+        final String trap = JfrHintGenerator.getKey("a/A", "trap", "()V");
+        assertEquals(hot, "a.A::hot (Ljava.lang.String;)I");
+
+        for (String key : new String[]{hot, hot, hot, big, big, trap, trap, cold})
+            generator.sampled(key);
+        generator.inliningFailed(hot, "already compiled into a big method");
+        generator.inliningFailed(hot, "inlining too deep");
+        generator.inliningFailed(cold, "inlining too deep");
+        generator.inliningFailed(cold, "inlining too deep");
+        generator.inliningFailed(big, "hot method too big");
+        generator.inliningFailed(big, "hot method too big");
+        generator.inliningFailed(trap, "inlining too deep");
+        generator.inliningFailed(trap, "inlining too deep");
+        generator.deoptimized(trap, "unstable_if");
+        generator.deoptimized(trap, "class_check");
+        generator.deoptimized(cold, "unstable_if");
+
+        final SortedMap<String, String> hints = generator.getHints();
+        assertEquals(hints.keySet().toString(), "[dontinline a.A::trap ()V, inline a.A::hot (Ljava.lang.String;)I]");
+        assertEquals(hints.get("inline a.A::hot (Ljava.lang.String;)I"),
+                     "3 execution samples, not inlined 2 times {already compiled into a big method=1, inlining too deep=1}");
+        assertEquals(hints.get("dontinline a.A::trap ()V"), "deoptimized 2 times {class_check=1, unstable_if=1}, compiled 0 times");
+    }
+
+    @Test
+    public void testRecording() throws IOException
+    {
+        final File dir = new File("target/test-jfr/" + System.nanoTime());
+        assertTrue(dir.mkdirs(), "failed creating test directory");
+        final File file = new File(dir, "recording.jfr");
+
+        final Recording recording = new Recording();
+        try {
+            recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(10));
+            recording.enable("jdk.CompilerInlining");
+            recording.enable("jdk.Deoptimization");
+            recording.enable("jdk.Compilation");
+            recording.start();
+            long sum = 0;
+            for (int i = 0; i < 1000000; i++)
+                sum += Integer.toString(i).hashCode();
+            assertTrue(sum != 1);
+            recording.stop();
+            recording.dump(file.toPath());
+        } finally {
+            recording.close();
+        }
+
+        final JfrHintGenerator generator = new JfrHintGenerator(10, 10, 5);
+        generator.analyze(file);
+        for (String hint : generator.getHints().keySet())
+            assertTrue(hint.startsWith("inline ") || hint.startsWith("dontinline "), hint);
+    }
+}
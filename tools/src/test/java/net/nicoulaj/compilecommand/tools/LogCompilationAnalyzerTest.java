@@ -0,0 +1,95 @@
+/*
+ * Hotspot compile command annotations - http://compile-command-annotations.nicoulaj.net
+ * Copyright © 2014-2019 Hotspot compile command annotations contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nicoulaj.compilecommand.tools;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link LogCompilationAnalyzer}.
+ */
+public class LogCompilationAnalyzerTest {
+
+    @Test
+    public void test() throws IOException
+    {
+        final LogCompilationAnalyzer analyzer = new LogCompilationAnalyzer(asList(
+            "quiet",
+            "dontinline Main::small",
+            "inline Main::other (I)I",
+            "inline Main::big (I[Ljava.lang.String;)I",
+            "exclude Main::never ()V",
+            "print Main::missing",
+            "option Main::main ([Ljava.lang.String;)V intx MaxNodeLimit 10000"
+        ));
+        final InputStream in = getClass().getResourceAsStream("hotspot.log");
+        try {
+            analyzer.analyze(in);
+        } finally {
+            in.close();
+        }
+
+        final List<HintReport> reports = analyzer.getReports();
+        assertEquals(reports.size(), 6);
+
+        final HintReport dontinline = reports.get(0);
+        assertEquals(dontinline.getStatus(), HintReport.Status.HONORED);
+        assertEquals(dontinline.getCompilations(), 2);
+        assertEquals(dontinline.getDeoptimizations(), 1);
+        assertEquals(dontinline.getNotInlined(), 1);
+        assertEquals(dontinline.getNotInlinedReasons(), Collections.singletonMap("disallowed by CompileCommand", 1));
+
+        final HintReport inline = reports.get(1);
+        assertEquals(inline.getStatus(), HintReport.Status.HONORED);
+        assertEquals(inline.getCompilations(), 1);
+        assertEquals(inline.getInlined(), 1);
+
+        final HintReport big = reports.get(2);
+        assertEquals(big.getStatus(), HintReport.Status.NOT_HONORED);
+        assertEquals(big.getInlined(), 1);
+        assertEquals(big.getNotInlinedReasons(), Collections.singletonMap("NodeCountInliningCutoff", 1));
+
+        assertEquals(reports.get(3).getStatus(), HintReport.Status.HONORED);
+        assertEquals(reports.get(4).getStatus(), HintReport.Status.NOT_OBSERVED);
+
+        final HintReport option = reports.get(5);
+        assertEquals(option.getStatus(), HintReport.Status.HONORED);
+        assertEquals(option.getCompilations(), 1);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTruncatedLog() throws IOException
+    {
+        final LogCompilationAnalyzer analyzer = new LogCompilationAnalyzer(asList("inline Main::other (I)I"));
+        try {
+            analyzer.analyze(new ByteArrayInputStream(
+                ("<hotspot_log><tty>" +
+                 "<nmethod compile_id='64' compiler='c1' level='3' method='Main other (I)I'/>" +
+                 "<nmethod compile_id='65' compiler='c2'").getBytes("UTF-8")));
+        } finally {
+            assertEquals(analyzer.getReports().get(0).getCompilations(), 1);
+        }
+    }
+}